@@ -0,0 +1,69 @@
+package retouch.project.careNdShare.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import retouch.project.careNdShare.storage.BlobStore;
+import retouch.project.careNdShare.storage.FileSystemBlobStore;
+import retouch.project.careNdShare.storage.S3BlobStore;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.net.URI;
+import java.time.Duration;
+
+// Picks the image storage backend: app.storage.backend=filesystem (default) or s3
+@Configuration
+public class BlobStoreConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.storage.backend", havingValue = "filesystem", matchIfMissing = true)
+    public BlobStore fileSystemBlobStore(@Value("${app.storage.filesystem.root:uploads/}") String root) {
+        return new FileSystemBlobStore(root);
+    }
+
+    /**
+     * endpoint and path-style access are for S3-compatible servers such as MinIO; leave the
+     * access key empty to use the SDK's default credential chain (env, profile, instance role).
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.storage.backend", havingValue = "s3")
+    public BlobStore s3BlobStore(@Value("${app.storage.s3.bucket}") String bucket,
+                                 @Value("${app.storage.s3.region:us-east-1}") String region,
+                                 @Value("${app.storage.s3.endpoint:}") String endpoint,
+                                 @Value("${app.storage.s3.path-style-access:false}") boolean pathStyleAccess,
+                                 @Value("${app.storage.s3.access-key:}") String accessKey,
+                                 @Value("${app.storage.s3.secret-key:}") String secretKey,
+                                 @Value("${app.storage.s3.key-prefix:}") String keyPrefix,
+                                 @Value("${app.storage.s3.url-ttl-minutes:60}") long urlTtlMinutes) {
+        S3Configuration serviceConfig = S3Configuration.builder()
+                .pathStyleAccessEnabled(pathStyleAccess)
+                .build();
+        AwsCredentialsProvider credentials = accessKey.isEmpty()
+                ? DefaultCredentialsProvider.create()
+                : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+
+        S3ClientBuilder client = S3Client.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .serviceConfiguration(serviceConfig);
+        S3Presigner.Builder presigner = S3Presigner.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .serviceConfiguration(serviceConfig);
+        if (!endpoint.isEmpty()) {
+            client.endpointOverride(URI.create(endpoint));
+            presigner.endpointOverride(URI.create(endpoint));
+        }
+
+        return new S3BlobStore(client.build(), presigner.build(), bucket, keyPrefix, Duration.ofMinutes(urlTtlMinutes));
+    }
+}
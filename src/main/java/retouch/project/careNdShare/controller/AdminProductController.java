@@ -4,9 +4,11 @@ import retouch.project.careNdShare.dto.ProductResponseDTO;
 import retouch.project.careNdShare.entity.Product;
 import retouch.project.careNdShare.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.HashMap;
 import java.util.List;
@@ -32,6 +34,14 @@ public class AdminProductController {
         }
     }
 
+    // Streaming mode of /pending: a bare JSON array written row by row
+    @GetMapping("/pending/stream")
+    public ResponseEntity<StreamingResponseBody> streamPendingProducts() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(productService.streamPendingProductsDTO());
+    }
+
     @PostMapping("/{productId}/approve")
     public ResponseEntity<?> approveProduct(@PathVariable Long productId) {
         try {
@@ -0,0 +1,62 @@
+package retouch.project.careNdShare.controller;
+
+import retouch.project.careNdShare.service.OrphanImageSweeper;
+import retouch.project.careNdShare.service.StorageMigrationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/storage")
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminStorageController {
+
+    @Autowired
+    private StorageMigrationService storageMigrationService;
+
+    @Autowired
+    private OrphanImageSweeper orphanImageSweeper;
+
+    // Move existing uploads into the sharded layout in the background; poll GET for progress
+    @PostMapping("/migrate")
+    public ResponseEntity<?> startMigration(
+            @RequestParam(defaultValue = "" + StorageMigrationService.DEFAULT_BATCH_SIZE) int batchSize) {
+        Map<String, Object> response = new HashMap<>();
+        if (!storageMigrationService.start(batchSize)) {
+            response.put("message", "Upload migration is already running");
+            response.put("status", storageMigrationService.status());
+            return ResponseEntity.badRequest().body(response);
+        }
+        response.put("message", "Upload migration started");
+        response.put("status", storageMigrationService.status());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/migrate")
+    public ResponseEntity<?> getMigrationStatus() {
+        return ResponseEntity.ok(storageMigrationService.status());
+    }
+
+    // Run the orphaned-image sweep now instead of waiting for its schedule; GET reports the latest run
+    @PostMapping("/gc")
+    public ResponseEntity<?> startSweep() {
+        Map<String, Object> response = new HashMap<>();
+        if (!orphanImageSweeper.start()) {
+            response.put("message", "Orphan image sweep is already running");
+            response.put("status", orphanImageSweeper.status());
+            return ResponseEntity.badRequest().body(response);
+        }
+        response.put("message", "Orphan image sweep started");
+        response.put("status", orphanImageSweeper.status());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/gc")
+    public ResponseEntity<?> getSweepStatus() {
+        return ResponseEntity.ok(orphanImageSweeper.status());
+    }
+}
@@ -3,93 +3,133 @@ package retouch.project.careNdShare.controller;
 
 import retouch.project.careNdShare.dto.*;
 import retouch.project.careNdShare.entity.User;
+import retouch.project.careNdShare.security.JwtUtils;
 import retouch.project.careNdShare.service.AuthService;
+import retouch.project.careNdShare.service.PasswordHashingBusyException;
+import retouch.project.careNdShare.service.RefreshTokenRaceException;
+import retouch.project.careNdShare.service.RefreshTokenService;
 import retouch.project.careNdShare.service.UserService;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
 
+    private static final String REFRESH_COOKIE = "refreshToken";
+
     @Autowired
     private AuthService authService;
 
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    // Password checks run on the hashing pool; a saturated pool is answered with 503 (see GlobalExceptionHandler)
     @PostMapping("/login")
-    public ResponseEntity<?> authenticateUser(@RequestBody LoginRequest loginRequest,
-                                              HttpServletResponse response) {
-        try {
-            String jwt = authService.authenticateUser(loginRequest.getEmail(), loginRequest.getPassword());
-            User user = userService.findByEmail(loginRequest.getEmail())
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-
-            // Create HTTP-only cookie
-            Cookie jwtCookie = new Cookie("jwtToken", jwt);
-            jwtCookie.setHttpOnly(true);
-            jwtCookie.setSecure(false); // Set to true in production with HTTPS
-            jwtCookie.setPath("/");
-            jwtCookie.setMaxAge(24 * 60 * 60); // 24 hours
-            response.addCookie(jwtCookie);
-
-            JwtResponse jwtResponse = new JwtResponse(jwt, user.getEmail(),
-                    user.getFirstName(), user.getLastName());
-
-            return ResponseEntity.ok(jwtResponse);
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
-        }
+    public CompletableFuture<ResponseEntity<?>> authenticateUser(@RequestBody LoginRequest loginRequest) {
+        return authService.authenticateUser(loginRequest.getEmail(), loginRequest.getPassword())
+                .<ResponseEntity<?>>thenApply(jwt -> {
+                    User user = userService.findByEmail(loginRequest.getEmail())
+                            .orElseThrow(() -> new RuntimeException("User not found"));
+
+                    JwtResponse jwtResponse = new JwtResponse(jwt, user.getEmail(),
+                            user.getFirstName(), user.getLastName());
+
+                    // Short-lived access token for page loads, and the refresh token that renews it
+                    return ResponseEntity.ok()
+                            .header(HttpHeaders.SET_COOKIE, jwtCookie(jwt, jwtUtils.getExpirationSeconds()).toString())
+                            .header(HttpHeaders.SET_COOKIE, refreshCookie(refreshTokenService.issue(user),
+                                    refreshTokenService.getTtlSeconds()).toString())
+                            .body(jwtResponse);
+                })
+                .exceptionally(e -> ResponseEntity.badRequest().body("Error: " + causeOf(e).getMessage()));
     }
 
     @PostMapping("/register")
-    public ResponseEntity<?> registerUser(@RequestBody RegisterRequest registerRequest) {
-        try {
-            User user = userService.registerUser(
-                    registerRequest.getEmail(),
-                    registerRequest.getPassword(),
-                    registerRequest.getFirstName(),
-                    registerRequest.getLastName());
+    public CompletableFuture<ResponseEntity<?>> registerUser(@RequestBody RegisterRequest registerRequest) {
+        return userService.registerUser(
+                        registerRequest.getEmail(),
+                        registerRequest.getPassword(),
+                        registerRequest.getFirstName(),
+                        registerRequest.getLastName())
+                .<ResponseEntity<?>>thenApply(user -> {
+                    // Return a proper JSON response
+                    Map<String, String> response = new HashMap<>();
+                    response.put("message", "User registered successfully!");
+                    response.put("email", user.getEmail());
+                    response.put("firstName", user.getFirstName());
+
+                    return ResponseEntity.ok(response);
+                })
+                .exceptionally(e -> {
+                    // Return proper error response
+                    Map<String, String> errorResponse = new HashMap<>();
+                    errorResponse.put("message", "Error: " + causeOf(e).getMessage());
+                    return ResponseEntity.badRequest().body(errorResponse);
+                });
+    }
 
-            // Return a proper JSON response
-            Map<String, String> response = new HashMap<>();
-            response.put("message", "User registered successfully!");
-            response.put("email", user.getEmail());
-            response.put("firstName", user.getFirstName());
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(HttpServletRequest request, HttpServletResponse response) {
+        // Revoke the token server-side, so a copy of it can't be replayed until it expires
+        authService.revokeToken(jwtUtils.getJwtFromRequest(request));
+
+        refreshTokenService.revoke(readCookie(request, REFRESH_COOKIE));
+
+        // Clear both cookies
+        response.addHeader(HttpHeaders.SET_COOKIE, jwtCookie(null, 0).toString());
+        response.addHeader(HttpHeaders.SET_COOKIE, refreshCookie(null, 0).toString());
 
-            return ResponseEntity.ok(response);
+        return ResponseEntity.ok("Logged out successfully");
+    }
 
+    /**
+     * Exchange the refresh cookie for a new access token (and rotate the refresh token), no password needed
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(HttpServletRequest request, HttpServletResponse response) {
+        try {
+            RefreshTokenService.Rotation rotation = refreshTokenService.rotate(readCookie(request, REFRESH_COOKIE));
+            User user = rotation.getUser();
+            String jwt = authService.generateToken(user.getEmail());
+
+            response.addHeader(HttpHeaders.SET_COOKIE, jwtCookie(jwt, jwtUtils.getExpirationSeconds()).toString());
+            response.addHeader(HttpHeaders.SET_COOKIE,
+                    refreshCookie(rotation.getRefreshToken(), refreshTokenService.getTtlSeconds()).toString());
+
+            return ResponseEntity.ok(new JwtResponse(jwt, user.getEmail(), user.getFirstName(), user.getLastName()));
+        } catch (RefreshTokenRaceException e) {
+            // Keep the cookie: the concurrent request that won the rotation has set (or is setting) its successor
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", "Error: " + e.getMessage()));
         } catch (Exception e) {
-            // Return proper error response
+            response.addHeader(HttpHeaders.SET_COOKIE, refreshCookie(null, 0).toString());
             Map<String, String> errorResponse = new HashMap<>();
             errorResponse.put("message", "Error: " + e.getMessage());
-            return ResponseEntity.badRequest().body(errorResponse);
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(errorResponse);
         }
     }
 
-    @PostMapping("/logout")
-    public ResponseEntity<?> logout(HttpServletResponse response) {
-        // Clear the JWT cookie
-        Cookie jwtCookie = new Cookie("jwtToken", null);
-        jwtCookie.setHttpOnly(true);
-        jwtCookie.setSecure(false);
-        jwtCookie.setPath("/");
-        jwtCookie.setMaxAge(0);
-        response.addCookie(jwtCookie);
-
-        return ResponseEntity.ok("Logged out successfully");
-    }
-
     @PostMapping("/forgot-password")
     public ResponseEntity<?> forgotPassword(@RequestBody ForgotPasswordRequest request) {
         try {
@@ -115,29 +155,30 @@ public class AuthController {
     }
 
     @PostMapping("/reset-password")
-    public ResponseEntity<?> resetPassword(@RequestBody ResetPasswordRequest request) {
+    public CompletableFuture<ResponseEntity<?>> resetPassword(@RequestBody ResetPasswordRequest request) {
         try {
             // Validate passwords match
             if (!request.getNewPassword().equals(request.getConfirmPassword())) {
-                return ResponseEntity.badRequest()
-                        .body(new ForgotPasswordResponse("Passwords do not match", false));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                        .body(new ForgotPasswordResponse("Passwords do not match", false)));
             }
 
             // Validate token
             if (!userService.validateResetToken(request.getToken())) {
-                return ResponseEntity.badRequest()
-                        .body(new ForgotPasswordResponse("Invalid or expired reset token", false));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                        .body(new ForgotPasswordResponse("Invalid or expired reset token", false)));
             }
-
-            // Reset password
-            userService.resetPassword(request.getToken(), request.getNewPassword());
-
-            return ResponseEntity.ok(new ForgotPasswordResponse("Password reset successfully", true));
-
         } catch (Exception e) {
-            return ResponseEntity.badRequest()
-                    .body(new ForgotPasswordResponse("Error resetting password: " + e.getMessage(), false));
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(new ForgotPasswordResponse("Error resetting password: " + e.getMessage(), false)));
         }
+
+        // Reset password
+        return userService.resetPassword(request.getToken(), request.getNewPassword())
+                .<ResponseEntity<?>>thenApply(done ->
+                        ResponseEntity.ok(new ForgotPasswordResponse("Password reset successfully", true)))
+                .exceptionally(e -> ResponseEntity.badRequest()
+                        .body(new ForgotPasswordResponse("Error resetting password: " + causeOf(e).getMessage(), false)));
     }
 
     @GetMapping("/validate-reset-token")
@@ -156,4 +197,45 @@ public class AuthController {
         }
     }
 
-}
\ No newline at end of file
+    private static ResponseCookie jwtCookie(String jwt, long maxAge) {
+        return ResponseCookie.from("jwtToken", jwt != null ? jwt : "")
+                .httpOnly(true)
+                .secure(false) // Set to true in production with HTTPS
+                .path("/")
+                .maxAge(maxAge)
+                .build();
+    }
+
+    // Only ever sent to /api/auth, and never on cross-site requests
+    private static ResponseCookie refreshCookie(String refreshToken, long maxAge) {
+        return ResponseCookie.from(REFRESH_COOKIE, refreshToken != null ? refreshToken : "")
+                .httpOnly(true)
+                .secure(false) // Set to true in production with HTTPS
+                .path("/api/auth")
+                .maxAge(maxAge)
+                .sameSite("Strict")
+                .build();
+    }
+
+    // Failures inside a CompletableFuture stage arrive wrapped in CompletionException; a hashing pool
+    // that filled up meanwhile is rethrown so GlobalExceptionHandler still answers 503
+    private static Throwable causeOf(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof PasswordHashingBusyException busy) {
+            throw busy;
+        }
+        return cause;
+    }
+
+    private static String readCookie(HttpServletRequest request, String name) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (name.equals(cookie.getName())) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
+    }
+}
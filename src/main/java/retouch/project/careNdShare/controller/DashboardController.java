@@ -0,0 +1,44 @@
+package retouch.project.careNdShare.controller;
+
+import retouch.project.careNdShare.dto.DashboardBootstrapDTO;
+import retouch.project.careNdShare.entity.User;
+import retouch.project.careNdShare.service.AuthService;
+import retouch.project.careNdShare.service.DashboardService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/dashboard")
+public class DashboardController {
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    // Profile, stats, my products, exchange requests and purchases in a single round trip
+    @GetMapping("/bootstrap")
+    public ResponseEntity<?> getBootstrap() {
+        try {
+            User currentUser = authService.getCurrentUser();
+            if (currentUser == null) {
+                return ResponseEntity.badRequest().body("User not authenticated");
+            }
+
+            DashboardBootstrapDTO dashboard = dashboardService.bootstrap(currentUser);
+            return ResponseEntity.ok(dashboard);
+
+        } catch (Exception e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "Error loading dashboard: " + e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package retouch.project.careNdShare.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.util.UriUtils;
+import retouch.project.careNdShare.service.ImageStorageService;
+import retouch.project.careNdShare.storage.BlobStore;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+/**
+ * Serves uploaded images from disk, or redirects to a presigned URL when the blob store is an
+ * object store.
+ *
+ * Bytes go out through Tomcat's sendfile support when the connector offers it (the servlet only
+ * names the file and range; the kernel copies it to the socket), otherwise through
+ * FileChannel.transferTo. Single byte ranges, If-None-Match and If-Range are honoured.
+ * Content-addressed uploads never change under their URL and are cacheable for a year; legacy
+ * uploads (size + mtime ETag) are cached briefly and then revalidated.
+ *
+ * This path is excluded from the security filter chain and from JWT parsing (see WebSecurityConfig
+ * and AuthTokenFilter): upload names are unguessable hashes/UUIDs. Because of that it sets
+ * X-Content-Type-Options itself.
+ */
+@Controller
+public class ImageController {
+
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+    private static final String LEGACY_CACHE_CONTROL = "public, max-age=3600, must-revalidate";
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // Presigned URLs expire, so redirects to them may only be reused for a short while
+    private static final String REDIRECT_CACHE_CONTROL = "private, max-age=300";
+
+    private final Path uploadRoot = Paths.get(ImageStorageService.UPLOAD_DIR).toAbsolutePath().normalize();
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @RequestMapping(value = "/uploads/**", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void serveUpload(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        String key = keyOf(request);
+        Path file = key != null ? localFile(key) : null;
+        if (file == null) {
+            // Object stores serve the bytes themselves
+            Optional<URI> url = key != null ? blobStore.downloadUrl(key) : Optional.empty();
+            if (url.isEmpty()) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            response.setHeader(HttpHeaders.CACHE_CONTROL, REDIRECT_CACHE_CONTROL);
+            response.sendRedirect(url.get().toString());
+            return;
+        }
+
+        String cacheControl = ImageStorageService.isContentAddressed("/" + ImageStorageService.UPLOAD_DIR + key)
+                ? CACHE_CONTROL : LEGACY_CACHE_CONTROL;
+        sendFile(request, response, file, etagFor(file, Files.size(file)), cacheControl);
+    }
+
+    /**
+     * Write a local file as the response: conditional (If-None-Match) and single-range requests are
+     * answered, and the bytes go out via sendfile or FileChannel.transferTo. Shared with the resize endpoint.
+     */
+    static void sendFile(HttpServletRequest request, HttpServletResponse response, Path file, String etag,
+                         String cacheControl) throws IOException {
+        long length = Files.size(file);
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (matchesAny(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        String contentType = request.getServletContext().getMimeType(file.getFileName().toString());
+        response.setContentType(contentType != null ? contentType : "application/octet-stream");
+
+        // Range applies only if there's no If-Range or it still names this representation
+        long start = 0;
+        long end = length - 1;
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && (ifRange == null || ifRange.trim().equals(etag))) {
+            long[] bounds = parseRange(range, length);
+            if (bounds == null) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (bounds.length == 2) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count == 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat streams the file itself once this method returns
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    // The decoded blob key of the request path, refusing traversal and hidden entries (.tmp, .originals)
+    private static String keyOf(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String key;
+        try {
+            // Legacy names can contain spaces and non-ASCII characters, which arrive percent-encoded
+            key = UriUtils.decode(path.substring("/uploads/".length()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (key.isEmpty() || key.contains("..") || key.contains("/.") || key.startsWith(".")
+                || key.indexOf('\\') >= 0 || key.indexOf('\0') >= 0) {
+            return null;
+        }
+        return key;
+    }
+
+    // The blob store's own file if it keeps one, else a legacy upload still in the local uploads/ directory
+    private Path localFile(String key) {
+        Optional<Path> stored = blobStore.localFile(key).filter(Files::isRegularFile);
+        if (stored.isPresent()) {
+            return stored.get();
+        }
+        Path legacy = uploadRoot.resolve(key).normalize();
+        return legacy.startsWith(uploadRoot) && Files.isRegularFile(legacy) ? legacy : null;
+    }
+
+    // Content-addressed files are named by their hash; legacy files fall back to size + mtime
+    private static String etagFor(Path file, long length) throws IOException {
+        String name = file.getFileName().toString();
+        if (ImageStorageService.hashOf(name) != null) {
+            // Renditions share the original's hash prefix, so the tag is the full file name
+            return "\"" + name + "\"";
+        }
+        return "\"" + Long.toHexString(length) + "-" + Long.toHexString(Files.getLastModifiedTime(file).toMillis()) + "\"";
+    }
+
+    static boolean matchesAny(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses a "bytes=" Range header. Returns {start, end} for one satisfiable range, an empty
+     * array when the header should be ignored (unknown unit, multiple ranges, malformed),
+     * or null when the range can't be satisfied.
+     */
+    static long[] parseRange(String header, long length) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return new long[0];
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // Suffix range: the last N bytes
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            }
+            if (start >= length || start > end) {
+                return null;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+}
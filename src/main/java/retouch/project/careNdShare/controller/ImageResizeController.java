@@ -0,0 +1,85 @@
+package retouch.project.careNdShare.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import retouch.project.careNdShare.entity.ProductStatus;
+import retouch.project.careNdShare.repository.ProductRepository;
+import retouch.project.careNdShare.security.UserPrincipal;
+import retouch.project.careNdShare.service.ImageRenditionService;
+import retouch.project.careNdShare.service.ResizedImageCache;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * GET /img/{productId}?w=320 - the product's image resized to (about) the requested width,
+ * served from ResizedImageCache. Approved products are visible to every signed-in user; pending
+ * and rejected ones only to their owner and admins (product ids, unlike upload names, are guessable).
+ */
+@Controller
+public class ImageResizeController {
+
+    // Rows can change image (in principle), so browsers revalidate daily rather than caching forever
+    private static final String CACHE_CONTROL = "private, max-age=86400";
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ResizedImageCache resizedImageCache;
+
+    @GetMapping("/img/{productId}")
+    public void resizedImage(@PathVariable Long productId,
+                             @RequestParam(defaultValue = "320") int w,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        List<Object[]> rows = productRepository.findImageInfoById(productId);
+        if (rows.isEmpty() || rows.get(0)[0] == null || !canView((ProductStatus) rows.get(0)[2], (Long) rows.get(0)[3])) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        String imagePath = (String) rows.get(0)[0];
+        String mediumPath = (String) rows.get(0)[1];
+
+        int width = ResizedImageCache.snapWidth(w);
+        String key = ResizedImageCache.cacheKey(imagePath, width);
+        String etag = "\"" + key.substring(0, key.length() - ".jpg".length()) + "\"";
+        if (ImageController.matchesAny(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        // The medium rendition is plenty for small widths and much cheaper to decode than the original
+        String source = mediumPath != null && width <= ImageRenditionService.MEDIUM_SIZE ? mediumPath : imagePath;
+        Path file;
+        try {
+            file = resizedImageCache.get(imagePath, source, width);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE);
+            return;
+        }
+        ImageController.sendFile(request, response, file, etag, CACHE_CONTROL);
+    }
+
+    private static boolean canView(ProductStatus status, Long ownerId) {
+        if (status == ProductStatus.APPROVED) {
+            return true;
+        }
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof UserPrincipal)) {
+            return false;
+        }
+        UserPrincipal principal = (UserPrincipal) authentication.getPrincipal();
+        return principal.isAdmin() || principal.getId().equals(ownerId);
+    }
+}
@@ -1,17 +1,30 @@
 package retouch.project.careNdShare.controller;
 
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import retouch.project.careNdShare.dto.ProductDetailDTO;
 import retouch.project.careNdShare.dto.ProductResponseDTO;
+import retouch.project.careNdShare.dto.ProductSort;
+import retouch.project.careNdShare.dto.ProductSummaryDTO;
 import retouch.project.careNdShare.entity.Product;
 import retouch.project.careNdShare.entity.ProductStatus;
 import retouch.project.careNdShare.entity.User;
-import retouch.project.careNdShare.repository.ProductRepository;
 import retouch.project.careNdShare.service.AuthService;
+import retouch.project.careNdShare.service.CatalogSnapshot;
+import retouch.project.careNdShare.service.ProductCatalogCache;
+import retouch.project.careNdShare.service.ProductDetailCache;
+import retouch.project.careNdShare.service.ProductFacetCounter;
+import retouch.project.careNdShare.service.ProductSearchIndex;
 import retouch.project.careNdShare.service.ProductService;
+import retouch.project.careNdShare.service.ProductViewCounter;
+import retouch.project.careNdShare.service.UploadSessionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.HashMap;
 import java.util.List;
@@ -30,7 +43,25 @@ public class ProductController {
     private AuthService authService;
 
     @Autowired
-    private ProductRepository productRepository;
+    private ProductCatalogCache productCatalogCache;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductFacetCounter productFacetCounter;
+
+    @Autowired
+    private ProductDetailCache productDetailCache;
+
+    @Autowired
+    private ProductViewCounter productViewCounter;
+
+    @Autowired
+    private UploadSessionService uploadSessionService;
+
+    // Catalog responses may be cached by the browser but must be revalidated (If-None-Match) on every use
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
 
     @PostMapping("/add")
     public ResponseEntity<?> addProduct(
@@ -39,7 +70,19 @@ public class ProductController {
             @RequestParam String category,
             @RequestParam String type,
             @RequestParam String description,
-            @RequestParam MultipartFile image) {
+            @RequestParam(required = false) MultipartFile image,
+            @RequestParam(required = false) String uploadId) {
+
+        // The image arrives either in this multipart request or beforehand through /api/uploads, never both
+        boolean hasImage = image != null && !image.isEmpty();
+        boolean hasUpload = uploadId != null && !uploadId.isBlank();
+        if (hasImage == hasUpload) {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", hasImage
+                    ? "Send either an image or an uploadId, not both"
+                    : "An image or an uploadId is required");
+            return ResponseEntity.badRequest().body(response);
+        }
 
         try {
             User currentUser = authService.getCurrentUser();
@@ -54,7 +97,9 @@ public class ProductController {
             product.setType(type);
             product.setDescription(description);
 
-            Product savedProduct = productService.addProduct(product, image, currentUser);
+            Product savedProduct = hasUpload
+                    ? productService.addProduct(product, uploadSessionService.claim(uploadId, currentUser.getId()), currentUser)
+                    : productService.addProduct(product, image, currentUser);
 
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Product submitted successfully. Waiting for admin approval.");
@@ -86,6 +131,19 @@ public class ProductController {
         }
     }
 
+    // Streaming mode of /my-products: a bare JSON array written row by row, for sellers with large listings
+    @GetMapping("/my-products/stream")
+    public ResponseEntity<StreamingResponseBody> streamMyProducts() {
+        User currentUser = authService.getCurrentUser();
+        if (currentUser == null) {
+            throw new RuntimeException("User not authenticated");
+        }
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(productService.streamUserProductsDTO(currentUser.getId()));
+    }
+
     @GetMapping("/my-products/{status}")
     public ResponseEntity<?> getMyProductsByStatus(@PathVariable String status) {
         try {
@@ -114,35 +172,40 @@ public class ProductController {
         }
     }
 
-    // Single endpoint for available products with optional filtering parameters
+    // Single endpoint for available products with optional filtering parameters.
+    // Pass size (and then the returned nextCursor) to get keyset pages from the database
+    // instead of the full list.
     @GetMapping("/available")
     public ResponseEntity<?> getAvailableProducts(
             @RequestParam(required = false) String type,
             @RequestParam(required = false) String category,
-            @RequestParam(required = false) String sort) {
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            WebRequest webRequest) {
 
         try {
-            List<Product> products = productRepository.findByStatus(ProductStatus.APPROVED);
-
-            // Apply filters
-            if (type != null && !type.equals("all")) {
-                products = products.stream()
-                        .filter(p -> p.getType().equals(type))
-                        .collect(Collectors.toList());
+            // Every list, paged or not, is a function of the catalog version: answer 304 before doing any work
+            CatalogSnapshot catalog = productCatalogCache.current();
+            if (webRequest.checkNotModified(productCatalogCache.catalogETag(catalog),
+                    ProductCatalogCache.toEpochMillis(catalog.getBuiltAt()))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(REVALIDATE).build();
             }
 
-            if (category != null && !category.equals("all")) {
-                products = products.stream()
-                        .filter(p -> p.getCategory().equals(category))
-                        .collect(Collectors.toList());
+            if (cursor != null || size != null) {
+                ProductSort productSort = ProductSort.fromParam(sort, ProductSort.NEWEST);
+                return ResponseEntity.ok().cacheControl(REVALIDATE)
+                        .body(productService.getAvailableProductsPage(type, category, productSort, cursor, size));
             }
 
-            // Apply sorting
-            if (sort != null) {
-                products = sortProducts(products, sort);
-            }
+            // Full lists come from the in-memory catalog snapshot; without a sort the
+            // list keeps the previous (insertion) order
+            ProductSort productSort = sort != null ? ProductSort.fromParam(sort, ProductSort.NEWEST) : ProductSort.OLDEST;
+            List<ProductSummaryDTO> products = catalog.list(type, category, productSort);
 
-            return ResponseEntity.ok(products);
+            return ResponseEntity.ok().cacheControl(REVALIDATE).body(products);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "Failed to load products"));
@@ -151,23 +214,103 @@ public class ProductController {
 
     // Endpoint to get available products by type only (for backward compatibility)
     @GetMapping("/available/{type}")
-    public ResponseEntity<List<Product>> getAvailableProductsByType(@PathVariable String type) {
+    public ResponseEntity<List<ProductSummaryDTO>> getAvailableProductsByType(@PathVariable String type,
+                                                                              WebRequest webRequest) {
         try {
-            List<Product> availableProducts = productRepository.findByStatusAndType(ProductStatus.APPROVED, type);
-            return ResponseEntity.ok(availableProducts);
+            CatalogSnapshot catalog = productCatalogCache.current();
+            if (webRequest.checkNotModified(productCatalogCache.catalogETag(catalog),
+                    ProductCatalogCache.toEpochMillis(catalog.getBuiltAt()))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(REVALIDATE).build();
+            }
+
+            List<ProductSummaryDTO> availableProducts = catalog.list(type, null, ProductSort.OLDEST);
+            return ResponseEntity.ok().cacheControl(REVALIDATE).body(availableProducts);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    // Full-text search over approved products (name, description, category, type)
+    @GetMapping("/search")
+    public ResponseEntity<?> searchProducts(
+            @RequestParam String q,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String condition,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(defaultValue = "20") int limit) {
+
+        if (q.trim().isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Search query is required"));
+        }
+
+        try {
+            return ResponseEntity.ok(productSearchIndex.search(q, type, category, condition, minPrice, maxPrice, limit));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to search products"));
+        }
+    }
+
+    // Facet counts (type, category, condition, price bucket) for approved products under the current filters
+    @GetMapping("/facets")
+    public ResponseEntity<?> getProductFacets(
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String condition,
+            @RequestParam(required = false) String price) {
+        try {
+            return ResponseEntity.ok(productFacetCounter.facets(type, category, condition, price));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to load product facets"));
+        }
+    }
+
+    // Approved products ranked by recent views (exponentially decayed, in memory)
+    @GetMapping("/trending")
+    public ResponseEntity<?> getTrendingProducts(@RequestParam(defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(productViewCounter.trending(limit));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to load trending products"));
+        }
+    }
+
+    // Approved products ranked by all-time views
+    @GetMapping("/most-viewed")
+    public ResponseEntity<?> getMostViewedProducts(@RequestParam(defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(productService.getMostViewedProducts(limit));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to load most viewed products"));
+        }
+    }
+
     // Product details endpoint
     @GetMapping("/{id}")
-    public ResponseEntity<?> getProductById(@PathVariable Long id) {
+    public ResponseEntity<?> getProductById(@PathVariable Long id, WebRequest webRequest) {
         try {
-            Optional<Product> product = productRepository.findByIdWithUser(id);
+            // The snapshot knows every approved product's updatedAt, so revalidation needs no query
+            Optional<ProductSummaryDTO> cached = productCatalogCache.current().get(id);
+            if (cached.isPresent()) {
+                productViewCounter.recordView(id);
+                if (webRequest.checkNotModified(productCatalogCache.productETag(cached.get()),
+                        ProductCatalogCache.toEpochMillis(cached.get().getUpdatedAt()))) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(REVALIDATE).build();
+                }
+            }
+
+            Optional<ProductDetailDTO> product = productDetailCache.get(id);
 
             if (product.isPresent()) {
-                return ResponseEntity.ok(product.get());
+                if (cached.isEmpty()) {
+                    productViewCounter.recordView(id);
+                }
+                return ResponseEntity.ok().cacheControl(REVALIDATE).body(product.get());
             } else {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body(Map.of("error", "Product not found or not approved"));
@@ -177,35 +320,4 @@ public class ProductController {
                     .body(Map.of("error", "Failed to load product details"));
         }
     }
-
-    private List<Product> sortProducts(List<Product> products, String sortType) {
-        switch(sortType) {
-            case "newest":
-                return products.stream()
-                        .sorted((a, b) -> b.getCreatedAt().compareTo(a.getCreatedAt()))
-                        .collect(Collectors.toList());
-            case "oldest":
-                return products.stream()
-                        .sorted((a, b) -> a.getCreatedAt().compareTo(b.getCreatedAt()))
-                        .collect(Collectors.toList());
-            case "price_low":
-                return products.stream()
-                        .sorted((a, b) -> a.getPrice().compareTo(b.getPrice()))
-                        .collect(Collectors.toList());
-            case "price_high":
-                return products.stream()
-                        .sorted((a, b) -> b.getPrice().compareTo(a.getPrice()))
-                        .collect(Collectors.toList());
-            case "name_asc":
-                return products.stream()
-                        .sorted((a, b) -> a.getName().compareToIgnoreCase(b.getName()))
-                        .collect(Collectors.toList());
-            case "name_desc":
-                return products.stream()
-                        .sorted((a, b) -> b.getName().compareToIgnoreCase(a.getName()))
-                        .collect(Collectors.toList());
-            default:
-                return products;
-        }
-    }
 }
\ No newline at end of file
@@ -8,10 +8,12 @@ import retouch.project.careNdShare.entity.PurchaseRequest;
 import retouch.project.careNdShare.entity.PurchaseStatus;
 import retouch.project.careNdShare.service.PurchaseService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 import java.util.HashMap;
@@ -86,6 +88,21 @@ public class PurchaseController {
         }
     }
 
+    // Streaming modes of /my-purchases and /my-sales: bare JSON arrays written row by row
+    @GetMapping("/my-purchases/stream")
+    public ResponseEntity<StreamingResponseBody> streamMyPurchases() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(purchaseService.streamPurchasesByBuyer(getCurrentUserEmail()));
+    }
+
+    @GetMapping("/my-sales/stream")
+    public ResponseEntity<StreamingResponseBody> streamMySales() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(purchaseService.streamSalesBySeller(getCurrentUserEmail()));
+    }
+
     @PutMapping("/{purchaseId}/status")
     public ResponseEntity<?> updatePurchaseStatus(
             @PathVariable Long purchaseId,
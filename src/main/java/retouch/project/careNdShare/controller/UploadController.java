@@ -0,0 +1,137 @@
+package retouch.project.careNdShare.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import retouch.project.careNdShare.entity.User;
+import retouch.project.careNdShare.service.AuthService;
+import retouch.project.careNdShare.service.TooManyUploadsException;
+import retouch.project.careNdShare.service.UploadSessionService;
+import retouch.project.careNdShare.service.UploadSessionService.UploadSession;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Raw-body, resumable image uploads (see UploadSessionService).
+ *
+ * POST /api/uploads?size=N opens a session, PUT /api/uploads/{id} sends the image bytes (the
+ * whole file, or a chunk with "Content-Range: bytes start-end/total"), GET reports how many bytes
+ * have arrived so an interrupted upload can resume. The returned uploadId is then passed to
+ * /api/products/add instead of a multipart image. Sessions are held by the node that opened them,
+ * so every request of one upload must reach the same node.
+ */
+@RestController
+@RequestMapping("/api/uploads")
+public class UploadController {
+
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+|\\*)");
+
+    @Autowired
+    private UploadSessionService uploadSessionService;
+
+    @Autowired
+    private AuthService authService;
+
+    @PostMapping
+    public ResponseEntity<?> start(@RequestParam(required = false) Long size) {
+        try {
+            User currentUser = authService.getCurrentUser();
+            if (currentUser == null) {
+                return ResponseEntity.badRequest().body("User not authenticated");
+            }
+            UploadSession session = uploadSessionService.start(currentUser.getId(), size);
+            return ResponseEntity.status(HttpStatus.CREATED).body(toResponse(session));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    @PutMapping("/{uploadId}")
+    public ResponseEntity<?> upload(@PathVariable String uploadId,
+                                    @RequestHeader(value = HttpHeaders.CONTENT_RANGE, required = false) String contentRange,
+                                    HttpServletRequest request) {
+        try {
+            User currentUser = authService.getCurrentUser();
+            if (currentUser == null) {
+                return ResponseEntity.badRequest().body("User not authenticated");
+            }
+
+            Long start = null;
+            Long total = null;
+            if (contentRange != null) {
+                Matcher matcher = CONTENT_RANGE.matcher(contentRange.trim());
+                if (!matcher.matches()) {
+                    throw new IllegalArgumentException("Invalid Content-Range header");
+                }
+                start = Long.parseLong(matcher.group(1));
+                total = matcher.group(3).equals("*") ? null : Long.parseLong(matcher.group(3));
+            }
+
+            UploadSession session = uploadSessionService.append(uploadId, currentUser.getId(), start, total,
+                    request.getInputStream());
+            return ResponseEntity.ok(toResponse(session));
+        } catch (IllegalStateException e) {
+            // Out-of-order chunk: tell the client where to resume
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", e.getMessage());
+            try {
+                response.putAll(toResponse(uploadSessionService.status(uploadId, authService.getCurrentUser().getId())));
+            } catch (RuntimeException ignored) {
+                // session expired meanwhile
+            }
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<?> status(@PathVariable String uploadId) {
+        try {
+            User currentUser = authService.getCurrentUser();
+            if (currentUser == null) {
+                return ResponseEntity.badRequest().body("User not authenticated");
+            }
+            return ResponseEntity.ok(toResponse(uploadSessionService.status(uploadId, currentUser.getId())));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<?> abort(@PathVariable String uploadId) {
+        try {
+            User currentUser = authService.getCurrentUser();
+            if (currentUser == null) {
+                return ResponseEntity.badRequest().body("User not authenticated");
+            }
+            uploadSessionService.abort(uploadId, currentUser.getId());
+            return ResponseEntity.ok(Map.of("message", "Upload cancelled"));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    private static Map<String, Object> toResponse(UploadSession session) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("uploadId", session.getId());
+        response.put("offset", session.getOffset());
+        response.put("size", session.getSize());
+        response.put("complete", session.isComplete());
+        return response;
+    }
+
+    private static ResponseEntity<?> error(Exception e) {
+        Map<String, String> response = new HashMap<>();
+        response.put("message", "Upload failed: " + e.getMessage());
+        HttpStatus status = e instanceof TooManyUploadsException ? HttpStatus.TOO_MANY_REQUESTS
+                : "Upload not found".equals(e.getMessage()) ? HttpStatus.NOT_FOUND : HttpStatus.BAD_REQUEST;
+        return ResponseEntity.status(status).body(response);
+    }
+}
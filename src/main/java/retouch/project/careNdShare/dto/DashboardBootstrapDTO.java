@@ -0,0 +1,34 @@
+package retouch.project.careNdShare.dto;
+
+import retouch.project.careNdShare.entity.ExchangeRequest;
+import retouch.project.careNdShare.entity.PurchaseRequest;
+
+import java.util.List;
+import java.util.Map;
+
+// Everything the dashboard needs on first load, returned by /api/dashboard/bootstrap in one response
+public class DashboardBootstrapDTO {
+    private Map<String, Object> user;
+    private Map<String, Object> stats;
+    private List<ProductResponseDTO> myProducts;
+    private List<ExchangeRequest> exchangeRequests;
+    private List<PurchaseRequest> purchases;
+
+    public DashboardBootstrapDTO() {}
+
+    // Getters and Setters
+    public Map<String, Object> getUser() { return user; }
+    public void setUser(Map<String, Object> user) { this.user = user; }
+
+    public Map<String, Object> getStats() { return stats; }
+    public void setStats(Map<String, Object> stats) { this.stats = stats; }
+
+    public List<ProductResponseDTO> getMyProducts() { return myProducts; }
+    public void setMyProducts(List<ProductResponseDTO> myProducts) { this.myProducts = myProducts; }
+
+    public List<ExchangeRequest> getExchangeRequests() { return exchangeRequests; }
+    public void setExchangeRequests(List<ExchangeRequest> exchangeRequests) { this.exchangeRequests = exchangeRequests; }
+
+    public List<PurchaseRequest> getPurchases() { return purchases; }
+    public void setPurchases(List<PurchaseRequest> purchases) { this.purchases = purchases; }
+}
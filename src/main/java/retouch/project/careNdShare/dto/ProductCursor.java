@@ -0,0 +1,97 @@
+package retouch.project.careNdShare.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor for catalog pages: the sort key and id of the last row on the previous page.
+ * Encoded as base64url("sort|value|id") so the dashboard can pass it back untouched.
+ */
+public class ProductCursor {
+    private final ProductSort sort;
+    private final String value;
+    private final Long id;
+
+    // The sort key parsed up front, so a malformed cursor fails in decode() rather than mid-query
+    private final LocalDateTime createdAt;
+    private final Double price;
+
+    public ProductCursor(ProductSort sort, String value, Long id) {
+        this.sort = sort;
+        this.value = value;
+        this.id = id;
+        switch (sort) {
+            case NEWEST:
+            case OLDEST:
+                this.createdAt = LocalDateTime.parse(value);
+                this.price = null;
+                break;
+            case PRICE_LOW:
+            case PRICE_HIGH:
+                this.createdAt = null;
+                this.price = Double.valueOf(value);
+                if (price.isNaN() || price.isInfinite()) {
+                    throw new NumberFormatException("Not a finite price: " + value);
+                }
+                break;
+            default:
+                this.createdAt = null;
+                this.price = null;
+        }
+    }
+
+    public static ProductCursor after(ProductSort sort, LocalDateTime createdAt, Double price, String name, Long id) {
+        switch (sort) {
+            case NEWEST:
+            case OLDEST:
+                return new ProductCursor(sort, createdAt.toString(), id);
+            case PRICE_LOW:
+            case PRICE_HIGH:
+                return new ProductCursor(sort, price.toString(), id);
+            default:
+                return new ProductCursor(sort, name, id);
+        }
+    }
+
+    public String encode() {
+        String raw = sort.getParam() + "|" + value + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProductCursor decode(String token, ProductSort expectedSort) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        // The name may itself contain '|', so split on the first and last separator only
+        int first = raw.indexOf('|');
+        int last = raw.lastIndexOf('|');
+        if (first < 0 || last <= first) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        ProductSort sort = ProductSort.fromParam(raw.substring(0, first), null);
+        if (sort != expectedSort) {
+            throw new IllegalArgumentException("Cursor does not match the requested sort order");
+        }
+
+        try {
+            Long id = Long.parseLong(raw.substring(last + 1));
+            return new ProductCursor(sort, raw.substring(first + 1, last), id);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    public ProductSort getSort() { return sort; }
+    public Long getId() { return id; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public Double getPrice() { return price; }
+    public String getName() { return value; }
+}
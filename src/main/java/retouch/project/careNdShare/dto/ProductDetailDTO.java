@@ -0,0 +1,61 @@
+package retouch.project.careNdShare.dto;
+
+import retouch.project.careNdShare.entity.ProductStatus;
+
+import java.time.LocalDateTime;
+
+// Product detail view: the card fields plus approval date and the seller's contact email
+public class ProductDetailDTO {
+    private final Long id;
+    private final String name;
+    private final Double price;
+    private final String category;
+    private final String type;
+    private final String description;
+    private final String imagePath;
+    private final String mediumPath;
+    private final String condition;
+    private final ProductStatus status;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime approvedAt;
+    private final LocalDateTime updatedAt;
+    private final ProductSellerDTO user;
+
+    // Constructor used by the JPQL constructor expression in ProductRepository
+    public ProductDetailDTO(Long id, String name, Double price, String category, String type,
+                            String description, String imagePath, String mediumPath, String condition,
+                            ProductStatus status, LocalDateTime createdAt, LocalDateTime approvedAt,
+                            LocalDateTime updatedAt,
+                            Long userId, String userFirstName, String userLastName, String userEmail) {
+        this.id = id;
+        this.name = name;
+        this.price = price;
+        this.category = category;
+        this.type = type;
+        this.description = description;
+        this.imagePath = imagePath;
+        this.mediumPath = mediumPath;
+        this.condition = condition;
+        this.status = status;
+        this.createdAt = createdAt;
+        this.approvedAt = approvedAt;
+        this.updatedAt = updatedAt;
+        this.user = new ProductSellerDTO(userId, userFirstName, userLastName, userEmail);
+    }
+
+    // Getters
+    public Long getId() { return id; }
+    public String getName() { return name; }
+    public Double getPrice() { return price; }
+    public String getCategory() { return category; }
+    public String getType() { return type; }
+    public String getDescription() { return description; }
+    public String getImagePath() { return imagePath; }
+    public String getMediumPath() { return mediumPath; }
+    public String getCondition() { return condition; }
+    public ProductStatus getStatus() { return status; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getApprovedAt() { return approvedAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public ProductSellerDTO getUser() { return user; }
+}
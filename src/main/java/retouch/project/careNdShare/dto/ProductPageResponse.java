@@ -0,0 +1,33 @@
+package retouch.project.careNdShare.dto;
+
+import java.util.List;
+
+// One keyset page of catalog items; pass nextCursor back as ?cursor= to fetch the following page
+public class ProductPageResponse<T> {
+    private List<T> items;
+    private String nextCursor;
+    private boolean hasMore;
+    private int size;
+
+    public ProductPageResponse() {}
+
+    public ProductPageResponse(List<T> items, String nextCursor, boolean hasMore, int size) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+        this.size = size;
+    }
+
+    // Getters and Setters
+    public List<T> getItems() { return items; }
+    public void setItems(List<T> items) { this.items = items; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+
+    public int getSize() { return size; }
+    public void setSize(int size) { this.size = size; }
+}
@@ -6,6 +6,8 @@ import retouch.project.careNdShare.entity.ProductStatus;
 import java.time.LocalDateTime;
 
 public class ProductResponseDTO {
+    private static final int PREVIEW_WIDTH = 160;
+
     private Long id;
     private String name;
     private Double price;
@@ -13,6 +15,9 @@ public class ProductResponseDTO {
     private String type;
     private String description;
     private String imagePath;
+    private String thumbnailPath;
+    // Small server-resized preview (/img/{id}), e.g. for the admin pending queue
+    private String previewUrl;
     private ProductStatus status;
     private LocalDateTime createdAt;
     private LocalDateTime approvedAt;
@@ -34,6 +39,9 @@ public class ProductResponseDTO {
         this.type = product.getType();
         this.description = product.getDescription();
         this.imagePath = product.getImagePath();
+        this.thumbnailPath = product.getThumbnailPath();
+        this.previewUrl = product.getId() != null && product.getImagePath() != null
+                ? "/img/" + product.getId() + "?w=" + PREVIEW_WIDTH : null;
         this.status = product.getStatus();
         this.createdAt = product.getCreatedAt();
         this.approvedAt = product.getApprovedAt();
@@ -70,6 +78,12 @@ public class ProductResponseDTO {
     public String getImagePath() { return imagePath; }
     public void setImagePath(String imagePath) { this.imagePath = imagePath; }
 
+    public String getThumbnailPath() { return thumbnailPath; }
+    public void setThumbnailPath(String thumbnailPath) { this.thumbnailPath = thumbnailPath; }
+
+    public String getPreviewUrl() { return previewUrl; }
+    public void setPreviewUrl(String previewUrl) { this.previewUrl = previewUrl; }
+
     public ProductStatus getStatus() { return status; }
     public void setStatus(ProductStatus status) { this.status = status; }
 
@@ -0,0 +1,28 @@
+package retouch.project.careNdShare.dto;
+
+import java.util.List;
+
+// Ranked search hits (best first) and the total number of matching products
+public class ProductSearchResponse {
+    private String query;
+    private int total;
+    private List<ProductSummaryDTO> items;
+
+    public ProductSearchResponse() {}
+
+    public ProductSearchResponse(String query, int total, List<ProductSummaryDTO> items) {
+        this.query = query;
+        this.total = total;
+        this.items = items;
+    }
+
+    // Getters and Setters
+    public String getQuery() { return query; }
+    public void setQuery(String query) { this.query = query; }
+
+    public int getTotal() { return total; }
+    public void setTotal(int total) { this.total = total; }
+
+    public List<ProductSummaryDTO> getItems() { return items; }
+    public void setItems(List<ProductSummaryDTO> items) { this.items = items; }
+}
@@ -0,0 +1,25 @@
+package retouch.project.careNdShare.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// Seller fields exposed with catalog items (serialized as "user" to keep the entity JSON shape)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductSellerDTO {
+    private final Long id;
+    private final String firstName;
+    private final String lastName;
+    private final String email;
+
+    public ProductSellerDTO(Long id, String firstName, String lastName, String email) {
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.email = email;
+    }
+
+    // Getters
+    public Long getId() { return id; }
+    public String getFirstName() { return firstName; }
+    public String getLastName() { return lastName; }
+    public String getEmail() { return email; }
+}
@@ -0,0 +1,35 @@
+package retouch.project.careNdShare.dto;
+
+// Sort orders supported by the catalog endpoints (matches the dashboard "sort" filter values)
+public enum ProductSort {
+    NEWEST("newest"),
+    OLDEST("oldest"),
+    PRICE_LOW("price_low"),
+    PRICE_HIGH("price_high"),
+    NAME_ASC("name_asc"),
+    NAME_DESC("name_desc");
+
+    private final String param;
+
+    ProductSort(String param) {
+        this.param = param;
+    }
+
+    public String getParam() {
+        return param;
+    }
+
+    /**
+     * Resolve a request parameter value, falling back to the given default when it is missing or unknown
+     */
+    public static ProductSort fromParam(String value, ProductSort defaultSort) {
+        if (value != null) {
+            for (ProductSort sort : values()) {
+                if (sort.param.equalsIgnoreCase(value)) {
+                    return sort;
+                }
+            }
+        }
+        return defaultSort;
+    }
+}
@@ -0,0 +1,65 @@
+package retouch.project.careNdShare.dto;
+
+import retouch.project.careNdShare.entity.ProductStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Immutable catalog card view of an approved product. Instances are shared between requests
+ * by the in-memory catalog snapshot, so there are deliberately no setters.
+ */
+public class ProductSummaryDTO {
+    private final Long id;
+    private final String name;
+    private final Double price;
+    private final String category;
+    private final String type;
+    private final String description;
+    private final String imagePath;
+    private final String thumbnailPath;
+    // Tiny blurred preview (data URI) to paint while the thumbnail loads; null until renditions exist
+    private final String placeholder;
+    private final String condition;
+    private final ProductStatus status;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+    private final ProductSellerDTO user;
+
+    // Constructor used by the JPQL constructor expression in ProductRepository
+    public ProductSummaryDTO(Long id, String name, Double price, String category, String type,
+                             String description, String imagePath, String thumbnailPath, String placeholder,
+                             String condition,
+                             ProductStatus status, LocalDateTime createdAt, LocalDateTime updatedAt,
+                             Long userId, String userFirstName, String userLastName) {
+        this.id = id;
+        this.name = name;
+        this.price = price;
+        this.category = category;
+        this.type = type;
+        this.description = description;
+        this.imagePath = imagePath;
+        this.thumbnailPath = thumbnailPath;
+        this.placeholder = placeholder;
+        this.condition = condition;
+        this.status = status;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.user = new ProductSellerDTO(userId, userFirstName, userLastName, null);
+    }
+
+    // Getters
+    public Long getId() { return id; }
+    public String getName() { return name; }
+    public Double getPrice() { return price; }
+    public String getCategory() { return category; }
+    public String getType() { return type; }
+    public String getDescription() { return description; }
+    public String getImagePath() { return imagePath; }
+    public String getThumbnailPath() { return thumbnailPath; }
+    public String getPlaceholder() { return placeholder; }
+    public String getCondition() { return condition; }
+    public ProductStatus getStatus() { return status; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public ProductSellerDTO getUser() { return user; }
+}
@@ -5,7 +5,10 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "exchange_requests")
+@Table(name = "exchange_requests", indexes = {
+        // Reference lookups by image (orphan sweep, storage migration)
+        @Index(name = "idx_exchange_requests_item_image", columnList = "exchange_item_image")
+})
 public class ExchangeRequest {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -28,6 +31,17 @@ public class ExchangeRequest {
     @Column(name = "exchange_item_image")
     private String exchangeItemImage;
 
+    // Downsized JPEG renditions of exchangeItemImage, filled in by ImageRenditionService after upload
+    @Column(name = "exchange_item_thumbnail")
+    private String exchangeItemThumbnail;
+
+    @Column(name = "exchange_item_medium")
+    private String exchangeItemMedium;
+
+    // Tiny blurred preview of the item image as a data URI
+    @Column(name = "exchange_item_placeholder", length = 1024)
+    private String exchangeItemPlaceholder;
+
     @Column(name = "additional_message", columnDefinition = "TEXT")
     private String additionalMessage;
 
@@ -113,6 +127,30 @@ public class ExchangeRequest {
         this.exchangeItemImage = exchangeItemImage;
     }
 
+    public String getExchangeItemThumbnail() {
+        return exchangeItemThumbnail;
+    }
+
+    public void setExchangeItemThumbnail(String exchangeItemThumbnail) {
+        this.exchangeItemThumbnail = exchangeItemThumbnail;
+    }
+
+    public String getExchangeItemMedium() {
+        return exchangeItemMedium;
+    }
+
+    public void setExchangeItemMedium(String exchangeItemMedium) {
+        this.exchangeItemMedium = exchangeItemMedium;
+    }
+
+    public String getExchangeItemPlaceholder() {
+        return exchangeItemPlaceholder;
+    }
+
+    public void setExchangeItemPlaceholder(String exchangeItemPlaceholder) {
+        this.exchangeItemPlaceholder = exchangeItemPlaceholder;
+    }
+
     public String getAdditionalMessage() {
         return additionalMessage;
     }
@@ -7,7 +7,14 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        // Keyset pagination indexes for the catalog sort orders (see ProductRepository.findAvailable*)
+        @Index(name = "idx_products_status_created", columnList = "status, created_at, id"),
+        @Index(name = "idx_products_status_price", columnList = "status, price, id"),
+        @Index(name = "idx_products_status_name", columnList = "status, name, id"),
+        // Reference lookups by image (orphan sweep, storage migration)
+        @Index(name = "idx_products_image_path", columnList = "image_path")
+})
 public class Product {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -31,6 +38,14 @@ public class Product {
     @Column(nullable = false)
     private String imagePath;
 
+    // Downsized JPEG renditions of imagePath, filled in by ImageRenditionService after upload
+    private String thumbnailPath;
+    private String mediumPath;
+
+    // Tiny blurred preview of the image as a data URI (see ImageRenditionService.placeholder)
+    @Column(length = 1024)
+    private String placeholder;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private ProductStatus status = ProductStatus.PENDING;
@@ -54,11 +69,20 @@ public class Product {
     private LocalDateTime approvedAt;
     private LocalDateTime rejectedAt;
 
+    // Last status change (approve/reject/sold); drives ETag and Last-Modified on catalog reads
+    private LocalDateTime updatedAt;
+
+    // Maintained in batches by ProductViewCounter, never through this entity
+    @Column(name = "view_count", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private long viewCount;
+
     private String rejectionReason;
 
     // Constructors
     public Product() {
         this.createdAt = LocalDateTime.now();
+        this.updatedAt = this.createdAt;
     }
 
     public Product(String name, Double price, String category, String type, String description, String imagePath, User user) {
@@ -142,4 +166,18 @@ public class Product {
 
     public String getRejectionReason() { return rejectionReason; }
     public void setRejectionReason(String rejectionReason) { this.rejectionReason = rejectionReason; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public long getViewCount() { return viewCount; }
+
+    public String getThumbnailPath() { return thumbnailPath; }
+    public void setThumbnailPath(String thumbnailPath) { this.thumbnailPath = thumbnailPath; }
+
+    public String getMediumPath() { return mediumPath; }
+    public void setMediumPath(String mediumPath) { this.mediumPath = mediumPath; }
+
+    public String getPlaceholder() { return placeholder; }
+    public void setPlaceholder(String placeholder) { this.placeholder = placeholder; }
 }
\ No newline at end of file
@@ -0,0 +1,82 @@
+package retouch.project.careNdShare.entity;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+// One stored upload, identified by the SHA-256 of its bytes and shared by every entity that references it
+@Entity
+@Table(name = "stored_blobs")
+public class StoredBlob implements Persistable<String> {
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    @Column(nullable = false, length = 10)
+    private String extension;
+
+    @Column(nullable = false)
+    private long sizeBytes;
+
+    private String contentType;
+
+    // Number of entity references (product images, exchange item images); the file is deleted at zero
+    @Column(nullable = false)
+    private int refCount;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    // Set on creation and on every deduplicated upload; the orphan sweep spares recently referenced blobs
+    private LocalDateTime lastReferencedAt;
+
+    // New blobs are always INSERTed (never merged), so two nodes storing the same bytes collide on the key
+    @Transient
+    private boolean isNew = true;
+
+    // Constructors
+    public StoredBlob() {}
+
+    public StoredBlob(String hash, String extension, long sizeBytes, String contentType) {
+        this.hash = hash;
+        this.extension = extension;
+        this.sizeBytes = sizeBytes;
+        this.contentType = contentType;
+        this.refCount = 1;
+        this.createdAt = LocalDateTime.now();
+        this.lastReferencedAt = this.createdAt;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() { this.isNew = false; }
+
+    @Override
+    public String getId() { return hash; }
+
+    @Override
+    public boolean isNew() { return isNew; }
+
+    // Getters and Setters
+    public String getHash() { return hash; }
+    public void setHash(String hash) { this.hash = hash; }
+
+    public String getExtension() { return extension; }
+    public void setExtension(String extension) { this.extension = extension; }
+
+    public long getSizeBytes() { return sizeBytes; }
+    public void setSizeBytes(long sizeBytes) { this.sizeBytes = sizeBytes; }
+
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+
+    public int getRefCount() { return refCount; }
+    public void setRefCount(int refCount) { this.refCount = refCount; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getLastReferencedAt() { return lastReferencedAt; }
+    public void setLastReferencedAt(LocalDateTime lastReferencedAt) { this.lastReferencedAt = lastReferencedAt; }
+}
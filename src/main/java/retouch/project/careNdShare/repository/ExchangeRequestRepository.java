@@ -1,10 +1,13 @@
 package retouch.project.careNdShare.repository;
 
 import retouch.project.careNdShare.entity.ExchangeRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -19,6 +22,39 @@ public interface ExchangeRequestRepository extends JpaRepository<ExchangeRequest
     List<ExchangeRequest> findByTargetProductUserId(Long ownerId);
     List<ExchangeRequest> findByTargetProductUserIdAndStatus(Long ownerId, String status);
 
+    // Renditions are written by a background worker; touch only these columns
+    @Modifying
+    @Transactional
+    @Query("UPDATE ExchangeRequest er SET er.exchangeItemThumbnail = :thumbnailPath, " +
+            "er.exchangeItemMedium = :mediumPath, er.exchangeItemPlaceholder = :placeholder WHERE er.id = :id")
+    int updateRenditions(@Param("id") Long id, @Param("thumbnailPath") String thumbnailPath,
+                         @Param("mediumPath") String mediumPath, @Param("placeholder") String placeholder);
+
+    // Upload store migration: requests whose image isn't in the sharded layout yet, in id order.
+    // Rows are [id, exchangeItemImage, exchangeItemThumbnail, exchangeItemMedium].
+    @Query("SELECT er.id, er.exchangeItemImage, er.exchangeItemThumbnail, er.exchangeItemMedium " +
+            "FROM ExchangeRequest er WHERE er.id > :afterId AND er.exchangeItemImage IS NOT NULL " +
+            "AND er.exchangeItemImage NOT LIKE '/uploads/__/__/%' ORDER BY er.id")
+    List<Object[]> findUnshardedImages(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Only rewrites the row if its image is still the one that was migrated
+    @Modifying
+    @Transactional
+    @Query("UPDATE ExchangeRequest er SET er.exchangeItemImage = :newPath, er.exchangeItemThumbnail = :thumbnailPath, " +
+            "er.exchangeItemMedium = :mediumPath WHERE er.id = :id AND er.exchangeItemImage = :oldPath")
+    int moveImage(@Param("id") Long id, @Param("oldPath") String oldPath, @Param("newPath") String newPath,
+                  @Param("thumbnailPath") String thumbnailPath, @Param("mediumPath") String mediumPath);
+
+    long countByExchangeItemImage(String exchangeItemImage);
+
+    // Requests made by a user or made for one of their listings (user deletion)
+    List<ExchangeRequest> findByRequesterIdOrTargetProductUserId(Long requesterId, Long ownerId);
+
+    // Distinct item image paths matching a LIKE pattern, in path order after a keyset position (orphan sweep)
+    @Query("SELECT DISTINCT er.exchangeItemImage FROM ExchangeRequest er WHERE er.exchangeItemImage LIKE :pattern " +
+            "AND er.exchangeItemImage > :after ORDER BY er.exchangeItemImage")
+    List<String> findImagePathsAfter(@Param("pattern") String pattern, @Param("after") String after, Pageable pageable);
+
     // Custom query to fetch exchange requests with eager loading of relationships
     @Query("SELECT er FROM ExchangeRequest er " +
             "LEFT JOIN FETCH er.requester " +
@@ -1,14 +1,24 @@
 package retouch.project.careNdShare.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.query.Param;
+import retouch.project.careNdShare.dto.ProductDetailDTO;
+import retouch.project.careNdShare.dto.ProductSummaryDTO;
 import retouch.project.careNdShare.entity.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import retouch.project.careNdShare.entity.ProductStatus;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
@@ -27,6 +37,150 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Query("SELECT p FROM Product p LEFT JOIN FETCH p.user WHERE p.id = :id AND p.status = 'APPROVED'")
     Optional<Product> findByIdWithUser(Long id);
 
+    // Export streams: rows are fetched from the driver in batches of EXPORT_FETCH_SIZE instead of all at once
+    // (MySQL needs useCursorFetch=true on the JDBC URL for this), and are read-only so Hibernate keeps no snapshots
+    String EXPORT_FETCH_SIZE = "500";
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT p FROM Product p JOIN FETCH p.user WHERE p.user.id = :userId ORDER BY p.createdAt DESC")
+    Stream<Product> streamByUserId(@Param("userId") Long userId);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT p FROM Product p JOIN FETCH p.user WHERE p.status = :status ORDER BY p.createdAt ASC")
+    Stream<Product> streamByStatus(@Param("status") ProductStatus status);
+
+    // Catalog card projection: only the columns the list view needs, seller joined in the same statement
+    String SUMMARY_SELECT = "SELECT new retouch.project.careNdShare.dto.ProductSummaryDTO(" +
+            "p.id, p.name, p.price, p.category, p.type, p.description, p.imagePath, p.thumbnailPath, p.placeholder, " +
+            "p.condition, p.status, p.createdAt, COALESCE(p.updatedAt, p.approvedAt, p.createdAt), " +
+            "u.id, u.firstName, u.lastName) " +
+            "FROM Product p JOIN p.user u ";
+
+    // Keyset-paged catalog queries: filters and ordering run in the database, and the cursor
+    // (sort key + id of the last row served) replaces OFFSET so every page costs the same.
+    // Pass null cursor values for the first page and Pageable.ofSize(n) to limit the page.
+    String AVAILABLE_FILTER = SUMMARY_SELECT + "WHERE p.status = 'APPROVED' " +
+            "AND (:type IS NULL OR p.type = :type) " +
+            "AND (:category IS NULL OR p.category = :category) ";
+
+    @Query(AVAILABLE_FILTER +
+            "AND (:cursorId IS NULL OR p.createdAt < :cursorCreatedAt " +
+            "OR (p.createdAt = :cursorCreatedAt AND p.id < :cursorId)) " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    List<ProductSummaryDTO> findAvailableNewest(@Param("type") String type, @Param("category") String category,
+                                      @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                      @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @Query(AVAILABLE_FILTER +
+            "AND (:cursorId IS NULL OR p.createdAt > :cursorCreatedAt " +
+            "OR (p.createdAt = :cursorCreatedAt AND p.id > :cursorId)) " +
+            "ORDER BY p.createdAt ASC, p.id ASC")
+    List<ProductSummaryDTO> findAvailableOldest(@Param("type") String type, @Param("category") String category,
+                                      @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                      @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @Query(AVAILABLE_FILTER +
+            "AND (:cursorId IS NULL OR p.price > :cursorPrice " +
+            "OR (p.price = :cursorPrice AND p.id > :cursorId)) " +
+            "ORDER BY p.price ASC, p.id ASC")
+    List<ProductSummaryDTO> findAvailablePriceLow(@Param("type") String type, @Param("category") String category,
+                                        @Param("cursorPrice") Double cursorPrice,
+                                        @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @Query(AVAILABLE_FILTER +
+            "AND (:cursorId IS NULL OR p.price < :cursorPrice " +
+            "OR (p.price = :cursorPrice AND p.id < :cursorId)) " +
+            "ORDER BY p.price DESC, p.id DESC")
+    List<ProductSummaryDTO> findAvailablePriceHigh(@Param("type") String type, @Param("category") String category,
+                                         @Param("cursorPrice") Double cursorPrice,
+                                         @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @Query(AVAILABLE_FILTER +
+            "AND (:cursorId IS NULL OR p.name > :cursorName " +
+            "OR (p.name = :cursorName AND p.id > :cursorId)) " +
+            "ORDER BY p.name ASC, p.id ASC")
+    List<ProductSummaryDTO> findAvailableNameAsc(@Param("type") String type, @Param("category") String category,
+                                       @Param("cursorName") String cursorName,
+                                       @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @Query(AVAILABLE_FILTER +
+            "AND (:cursorId IS NULL OR p.name < :cursorName " +
+            "OR (p.name = :cursorName AND p.id < :cursorId)) " +
+            "ORDER BY p.name DESC, p.id DESC")
+    List<ProductSummaryDTO> findAvailableNameDesc(@Param("type") String type, @Param("category") String category,
+                                        @Param("cursorName") String cursorName,
+                                        @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE p.status = 'APPROVED'")
+    List<ProductSummaryDTO> findApprovedSummaries();
+
+    @Query(SUMMARY_SELECT + "WHERE p.id = :id AND p.status = 'APPROVED'")
+    Optional<ProductSummaryDTO> findApprovedSummaryById(@Param("id") Long id);
+
+    // Catalog sync: the newest write on any product, and [id, status, updatedAt] of products written since a time
+    @Query("SELECT MAX(p.updatedAt) FROM Product p")
+    LocalDateTime findLatestUpdate();
+
+    @Query("SELECT p.id, p.status, p.updatedAt FROM Product p WHERE p.updatedAt >= :since")
+    List<Object[]> findChangesSince(@Param("since") LocalDateTime since);
+
+    @Query("SELECT p.id FROM Product p WHERE p.status = 'APPROVED'")
+    List<Long> findApprovedIds();
+
+    // Renditions are written by a background worker; touch only these columns so concurrent edits aren't lost
+    @Modifying
+    @Transactional
+    @Query("UPDATE Product p SET p.thumbnailPath = :thumbnailPath, p.mediumPath = :mediumPath, " +
+            "p.placeholder = :placeholder, p.updatedAt = :updatedAt WHERE p.id = :id")
+    int updateRenditions(@Param("id") Long id, @Param("thumbnailPath") String thumbnailPath,
+                         @Param("mediumPath") String mediumPath, @Param("placeholder") String placeholder,
+                         @Param("updatedAt") LocalDateTime updatedAt);
+
+    // Upload store migration: products whose image isn't in the sharded layout yet, in id order.
+    // Rows are [id, imagePath, thumbnailPath, mediumPath].
+    @Query("SELECT p.id, p.imagePath, p.thumbnailPath, p.mediumPath FROM Product p " +
+            "WHERE p.id > :afterId AND p.imagePath NOT LIKE '/uploads/__/__/%' ORDER BY p.id")
+    List<Object[]> findUnshardedImages(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Only rewrites the row if its image is still the one that was migrated
+    @Modifying
+    @Transactional
+    @Query("UPDATE Product p SET p.imagePath = :newPath, p.thumbnailPath = :thumbnailPath, " +
+            "p.mediumPath = :mediumPath, p.updatedAt = :updatedAt WHERE p.id = :id AND p.imagePath = :oldPath")
+    int moveImage(@Param("id") Long id, @Param("oldPath") String oldPath, @Param("newPath") String newPath,
+                  @Param("thumbnailPath") String thumbnailPath, @Param("mediumPath") String mediumPath,
+                  @Param("updatedAt") LocalDateTime updatedAt);
+
+    long countByImagePath(String imagePath);
+
+    // What the resize endpoint needs about a product's image: [imagePath, mediumPath, status, owner id]
+    @Query("SELECT p.imagePath, p.mediumPath, p.status, p.user.id FROM Product p WHERE p.id = :id")
+    List<Object[]> findImageInfoById(@Param("id") Long id);
+
+    // Listings that still show their image: everything but rejected ones (orphan sweep)
+    @Query("SELECT COUNT(p) FROM Product p WHERE p.imagePath = :imagePath AND p.status <> 'REJECTED'")
+    long countLiveByImagePath(@Param("imagePath") String imagePath);
+
+    // Distinct image paths of non-rejected listings matching a LIKE pattern, in path order after a keyset
+    // position (orphan sweep)
+    @Query("SELECT DISTINCT p.imagePath FROM Product p WHERE p.imagePath LIKE :pattern AND p.imagePath > :after " +
+            "AND p.status <> 'REJECTED' ORDER BY p.imagePath")
+    List<String> findImagePathsAfter(@Param("pattern") String pattern, @Param("after") String after, Pageable pageable);
+
+    // All-time most viewed approved products (view counts as of the last flush)
+    @Query(SUMMARY_SELECT + "WHERE p.status = 'APPROVED' ORDER BY p.viewCount DESC, p.id DESC")
+    List<ProductSummaryDTO> findMostViewed(Pageable pageable);
+
+    // Product detail projection (approved products only), one statement including the seller
+    @Query("SELECT new retouch.project.careNdShare.dto.ProductDetailDTO(" +
+            "p.id, p.name, p.price, p.category, p.type, p.description, p.imagePath, p.mediumPath, " +
+            "p.condition, p.status, p.createdAt, p.approvedAt, COALESCE(p.updatedAt, p.approvedAt, p.createdAt), " +
+            "u.id, u.firstName, u.lastName, u.email) " +
+            "FROM Product p JOIN p.user u WHERE p.id = :id AND p.status = 'APPROVED'")
+    Optional<ProductDetailDTO> findApprovedDetailById(@Param("id") Long id);
+
     // In your repository or service
     @Query(value = "INSERT INTO products (..., product_type, ...) VALUES (..., :productType, ...)", nativeQuery = true)
     void saveProduct(@Param("productType") String productType);
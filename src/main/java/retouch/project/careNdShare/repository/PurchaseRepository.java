@@ -3,15 +3,44 @@ package retouch.project.careNdShare.repository;
 
 import retouch.project.careNdShare.entity.PurchaseRequest;
 import retouch.project.careNdShare.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface PurchaseRepository extends JpaRepository<PurchaseRequest, Long> {
     List<PurchaseRequest> findByBuyerOrderByCreatedAtDesc(User buyer);
     List<PurchaseRequest> findByProductUserOrderByCreatedAtDesc(User seller);
     List<PurchaseRequest> findByProductId(Long productId);
+
+    // Purchases made by a user or of one of their listings (user deletion)
+    List<PurchaseRequest> findByBuyerIdOrProductUserId(Long buyerId, Long sellerId);
     List<PurchaseRequest> findByStatusOrderByCreatedAtDesc(retouch.project.careNdShare.entity.PurchaseStatus status);
+
+    // Buyer's purchases with product and buyer loaded, for use outside the request's persistence context
+    @Query("SELECT pr FROM PurchaseRequest pr JOIN FETCH pr.product JOIN FETCH pr.buyer " +
+            "WHERE pr.buyer.id = :buyerId ORDER BY pr.createdAt DESC")
+    List<PurchaseRequest> findByBuyerIdWithDetails(@Param("buyerId") Long buyerId);
+
+    long countByProductUserId(Long sellerId);
+
+    // Export streams (see ProductRepository.EXPORT_FETCH_SIZE); product and buyer are fetched in the same row
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = ProductRepository.EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT pr FROM PurchaseRequest pr JOIN FETCH pr.product JOIN FETCH pr.buyer " +
+            "WHERE pr.buyer.id = :buyerId ORDER BY pr.createdAt DESC")
+    Stream<PurchaseRequest> streamByBuyerId(@Param("buyerId") Long buyerId);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = ProductRepository.EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT pr FROM PurchaseRequest pr JOIN FETCH pr.product p JOIN FETCH pr.buyer " +
+            "WHERE p.user.id = :sellerId ORDER BY pr.createdAt DESC")
+    Stream<PurchaseRequest> streamBySellerId(@Param("sellerId") Long sellerId);
 }
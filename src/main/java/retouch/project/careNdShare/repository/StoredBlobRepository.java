@@ -0,0 +1,37 @@
+package retouch.project.careNdShare.repository;
+
+import retouch.project.careNdShare.entity.StoredBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface StoredBlobRepository extends JpaRepository<StoredBlob, String> {
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE StoredBlob b SET b.refCount = b.refCount + 1, b.lastReferencedAt = :now WHERE b.hash = :hash")
+    int incrementRefCount(@Param("hash") String hash, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE StoredBlob b SET b.refCount = b.refCount - 1 WHERE b.hash = :hash AND b.refCount > 0")
+    int decrementRefCount(@Param("hash") String hash);
+
+    // Drops a reference but keeps the files for the orphan sweep; the touch starts its grace period
+    @Modifying
+    @Transactional
+    @Query("UPDATE StoredBlob b SET b.refCount = b.refCount - 1, b.lastReferencedAt = :now " +
+            "WHERE b.hash = :hash AND b.refCount > 0")
+    int dropReference(@Param("hash") String hash, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM StoredBlob b WHERE b.hash = :hash AND b.refCount = 0")
+    int deleteIfUnreferenced(@Param("hash") String hash);
+}
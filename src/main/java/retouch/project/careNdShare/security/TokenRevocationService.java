@@ -0,0 +1,220 @@
+package retouch.project.careNdShare.security;
+
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import retouch.project.careNdShare.entity.RevokedToken;
+import retouch.project.careNdShare.repository.RevokedTokenRepository;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Denylist of revoked JWTs, keyed by their jti claim.
+ *
+ * The revoked_tokens table is the source of truth. Each node mirrors the still-unexpired rows in
+ * memory as an exact set fronted by a Bloom filter, so the check AuthTokenFilter makes on every
+ * request is a handful of bit probes and only tokens the filter flags pay for a map lookup.
+ * The mirror is rebuilt from the table periodically, which purges expired entries and picks up
+ * revocations made on other nodes.
+ */
+@Service
+public class TokenRevocationService {
+
+    // Target false-positive rate of the Bloom filter at its expected size
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final int HASH_FUNCTIONS = 7;
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.auth.revocation.expected-entries:100000}")
+    private int expectedEntries;
+
+    // Replaced wholesale on refresh; revocations in between are added to the current one under the lock
+    private volatile Denylist denylist;
+
+    private Counter revokedHits;
+    private Counter falsePositives;
+
+    @PostConstruct
+    public void init() {
+        revokedHits = meterRegistry.counter("auth.revocation.check", "result", "revoked");
+        falsePositives = meterRegistry.counter("auth.revocation.check", "result", "false_positive");
+        Gauge.builder("auth.revocation.entries", this, service -> service.denylist.exact.size()).register(meterRegistry);
+
+        denylist = new Denylist(expectedEntries);
+        refresh();
+    }
+
+    /**
+     * True if the token with this jti was revoked. Tokens without a jti (issued before revocation
+     * existed) can't be revoked and simply run out at their expiry.
+     */
+    public boolean isRevoked(String jti) {
+        if (jti == null) {
+            return false;
+        }
+        Denylist current = denylist;
+        if (!current.bloom.mightContain(jti)) {
+            return false;
+        }
+        if (current.exact.containsKey(jti)) {
+            revokedHits.increment();
+            return true;
+        }
+        falsePositives.increment();
+        return false;
+    }
+
+    /**
+     * Revoke a token until its expiry; revoking it again is harmless
+     */
+    public void revoke(String jti, Date expiresAt) {
+        if (jti == null || expiresAt == null || expiresAt.getTime() <= System.currentTimeMillis()) {
+            return;
+        }
+        try {
+            revokedTokenRepository.save(new RevokedToken(jti,
+                    LocalDateTime.ofInstant(expiresAt.toInstant(), ZoneId.systemDefault())));
+        } catch (DataIntegrityViolationException e) {
+            // Already revoked (e.g. a double logout)
+        }
+        synchronized (this) {
+            denylist.add(jti, expiresAt.getTime());
+        }
+    }
+
+    // Delete rows of tokens that have expired, then rebuild the in-memory mirror from what is left
+    @Scheduled(fixedDelayString = "${app.auth.revocation.refresh-interval-ms:60000}")
+    public void refresh() {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            int purged = revokedTokenRepository.deleteExpired(now);
+            if (purged > 0) {
+                System.out.println("Purged " + purged + " expired token revocations");
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Failed to purge expired token revocations: " + e.getMessage());
+        }
+
+        List<Object[]> rows;
+        try {
+            rows = revokedTokenRepository.findActive(now);
+        } catch (RuntimeException e) {
+            System.err.println("Failed to load token revocations, keeping the current list: " + e.getMessage());
+            return;
+        }
+
+        long nowMillis = System.currentTimeMillis();
+        synchronized (this) {
+            // Keep local revocations too: they may have been made while the query ran
+            Map<String, Long> local = denylist.exact;
+            Denylist rebuilt = new Denylist(Math.max(expectedEntries, 2 * (rows.size() + local.size())));
+            for (Object[] row : rows) {
+                LocalDateTime expiresAt = (LocalDateTime) row[1];
+                rebuilt.add((String) row[0], expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            }
+            local.forEach((jti, expiresAt) -> {
+                if (expiresAt > nowMillis) {
+                    rebuilt.add(jti, expiresAt);
+                }
+            });
+            denylist = rebuilt;
+        }
+    }
+
+    // Exact set of revoked jtis (to their expiry) and the Bloom filter over it
+    private static final class Denylist {
+        private final BloomFilter bloom;
+        private final ConcurrentHashMap<String, Long> exact = new ConcurrentHashMap<>();
+
+        private Denylist(int expectedEntries) {
+            this.bloom = new BloomFilter(expectedEntries);
+        }
+
+        // Exact set first, so a jti that passes the filter is always found in the set
+        private void add(String jti, long expiresAt) {
+            exact.put(jti, expiresAt);
+            bloom.put(jti);
+        }
+    }
+
+    /**
+     * Bit-array Bloom filter with k probes derived from one 64-bit hash (Kirsch-Mitzenmacher).
+     * Writers set bits with CAS, readers need no locking.
+     */
+    static final class BloomFilter {
+        private final AtomicLongArray words;
+        private final long bitCount;
+
+        BloomFilter(int expectedEntries) {
+            // m = -n ln p / (ln 2)^2, rounded up to whole words
+            double bits = -Math.max(expectedEntries, 1) * Math.log(FALSE_POSITIVE_RATE) / (Math.log(2) * Math.log(2));
+            int wordCount = (int) Math.max(16, Math.ceil(bits / 64));
+            this.words = new AtomicLongArray(wordCount);
+            this.bitCount = (long) wordCount * 64;
+        }
+
+        void put(String value) {
+            long hash = hash(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= HASH_FUNCTIONS; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                int index = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long word;
+                do {
+                    word = words.get(index);
+                    if ((word & mask) != 0) {
+                        break;
+                    }
+                } while (!words.compareAndSet(index, word, word | mask));
+            }
+        }
+
+        boolean mightContain(String value) {
+            long hash = hash(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= HASH_FUNCTIONS; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // 64-bit FNV-1a over the characters, finished with a murmur3 mix to spread the high bits
+        private static long hash(String value) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                h ^= value.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb93fe1a85ec3L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
@@ -1,27 +1,156 @@
 package retouch.project.careNdShare.security;
 
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import retouch.project.careNdShare.entity.User;
 import retouch.project.careNdShare.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Date;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads principals by email through a small TTL cache, so login and tokens without embedded
+ * claims don't query users and user_roles every time.
+ *
+ * UserService calls invalidate() after changing a user's role, password or existence. The time
+ * of that change is remembered for as long as a token can live, which lets AuthTokenFilter
+ * reload the principal for tokens issued before it instead of trusting their claims.
+ */
 @Service
 public class UserDetailsServiceImpl implements UserDetailsService {
 
     @Autowired
     UserRepository userRepository;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.auth.principal-cache.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    @Value("${app.auth.principal-cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${jwt.expiration}")
+    private long jwtExpirationMs;
+
+    private final ConcurrentHashMap<String, CachedPrincipal> entries = new ConcurrentHashMap<>();
+
+    // Email -> time of the last invalidation, kept until every token issued before it has expired
+    private final ConcurrentHashMap<String, Long> invalidatedAt = new ConcurrentHashMap<>();
+
+    // Bumped on every invalidation; a load that overlapped one must not be cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private Counter hits;
+    private Counter misses;
+    private Timer loadTimer;
+
+    @PostConstruct
+    public void init() {
+        hits = meterRegistry.counter("auth.principal.cache", "result", "hit");
+        misses = meterRegistry.counter("auth.principal.cache", "result", "miss");
+        loadTimer = meterRegistry.timer("auth.principal.load");
+        Gauge.builder("auth.principal.cache.size", entries, ConcurrentHashMap::size).register(meterRegistry);
+    }
+
     @Override
-    @Transactional
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new UsernameNotFoundException("User Not Found with email: " + email));
+        CachedPrincipal cached = entries.get(email);
+        if (cached != null && !cached.isExpired()) {
+            hits.increment();
+            return cached.principal;
+        }
+
+        misses.increment();
+        long invalidationsBefore = invalidations.get();
+        long started = System.nanoTime();
+        User user;
+        try {
+            user = userRepository.findByEmail(email)
+                    .orElseThrow(() -> new UsernameNotFoundException("User Not Found with email: " + email));
+        } finally {
+            loadTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+
+        UserPrincipal principal = UserPrincipal.create(user);
+        if (invalidations.get() == invalidationsBefore) {
+            put(email, principal);
+        }
+        return principal;
+    }
+
+    /**
+     * Forget the cached principal for this email and mark tokens issued until now as stale
+     */
+    public void invalidate(String email) {
+        if (email == null) {
+            return;
+        }
+        invalidations.incrementAndGet();
+        invalidatedAt.put(email, System.currentTimeMillis());
+        entries.remove(email);
+    }
+
+    /**
+     * True if the user was changed after the token was issued, so its claims can't be trusted
+     */
+    public boolean isStale(String email, Date issuedAt) {
+        Long changed = email != null ? invalidatedAt.get(email) : null;
+        // iat has second precision: a token from the same second as the change counts as stale
+        return changed != null && (issuedAt == null || issuedAt.getTime() / 1000 <= changed / 1000);
+    }
+
+    // Invalidation marks only matter while tokens issued before them can still be presented
+    @Scheduled(fixedDelayString = "${app.auth.principal-cache.prune-interval-ms:600000}")
+    public void pruneInvalidations() {
+        long cutoff = System.currentTimeMillis() - jwtExpirationMs;
+        invalidatedAt.values().removeIf(changed -> changed < cutoff);
+        entries.values().removeIf(CachedPrincipal::isExpired);
+    }
+
+    private void put(String email, UserPrincipal principal) {
+        if (entries.size() >= maxEntries) {
+            evict();
+        }
+        entries.put(email, new CachedPrincipal(principal, System.currentTimeMillis() + ttlSeconds * 1000));
+    }
+
+    // Drop expired entries first; if still full, drop arbitrary entries (hash order) until there is room
+    private void evict() {
+        entries.values().removeIf(CachedPrincipal::isExpired);
+        Iterator<String> emails = entries.keySet().iterator();
+        while (entries.size() >= maxEntries && emails.hasNext()) {
+            emails.next();
+            emails.remove();
+        }
+    }
+
+    private static final class CachedPrincipal {
+        private final UserPrincipal principal;
+        private final long expiresAt;
+
+        private CachedPrincipal(UserPrincipal principal, long expiresAt) {
+            this.principal = principal;
+            this.expiresAt = expiresAt;
+        }
 
-        return UserPrincipal.create(user);
+        private boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,33 +1,85 @@
 package retouch.project.careNdShare.service;
 
 import retouch.project.careNdShare.entity.User;
+import io.jsonwebtoken.Claims;
 import retouch.project.careNdShare.security.JwtUtils;
+import retouch.project.careNdShare.security.TokenRevocationService;
+import retouch.project.careNdShare.security.UserDetailsServiceImpl;
 import retouch.project.careNdShare.security.UserPrincipal;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.AccountStatusUserDetailsChecker;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsChecker;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+
 @Service
 public class AuthService {
 
-    @Autowired
-    private AuthenticationManager authenticationManager;
-
     @Autowired
     private JwtUtils jwtUtils;
 
     @Autowired
     private UserService userService;
 
-    public String authenticateUser(String email, String password) {
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(email, password));
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+
+    // The locked/disabled/expired checks DaoAuthenticationProvider made before login went async
+    private final UserDetailsChecker accountStatusChecker = new AccountStatusUserDetailsChecker();
+
+    /**
+     * Checks the password on the hashing pool and completes with a new access token, or with
+     * BadCredentialsException (or an AccountStatusException for a locked, disabled or expired account).
+     * Throws PasswordHashingBusyException straight away if hashing is saturated.
+     */
+    public CompletableFuture<String> authenticateUser(String email, String password) {
+        // The principal (and its hash) usually comes from the cache; unknown users still cost one hash
+        UserPrincipal principal;
+        try {
+            principal = (UserPrincipal) userDetailsService.loadUserByUsername(email);
+        } catch (UsernameNotFoundException e) {
+            principal = null;
+        }
+        UserPrincipal user = principal;
+
+        return passwordHashingService.matches(password, user != null ? user.getPassword() : null)
+                .thenApply(matches -> {
+                    if (!matches) {
+                        throw new BadCredentialsException("Bad credentials");
+                    }
+                    // Only after the password matched, so the account's status isn't revealed to guessers
+                    accountStatusChecker.check(user);
+                    return jwtUtils.generateJwtToken(user);
+                });
+    }
+
+    /**
+     * Mint an access token for a user without checking their password (the caller has verified a
+     * refresh token); roles come from the principal cache, so changes since login apply
+     */
+    public String generateToken(String email) {
+        return jwtUtils.generateJwtToken((UserPrincipal) userDetailsService.loadUserByUsername(email));
+    }
 
-        SecurityContextHolder.getContext().setAuthentication(authentication);
-        return jwtUtils.generateJwtToken(authentication);
+    /**
+     * Revoke a presented token so it stops authenticating before its expiry; invalid tokens are ignored
+     */
+    public void revokeToken(String jwt) {
+        Claims claims = jwt != null ? jwtUtils.parseClaims(jwt) : null;
+        if (claims != null) {
+            tokenRevocationService.revoke(claims.getId(), claims.getExpiration());
+        }
     }
 
     public User getCurrentUser() {
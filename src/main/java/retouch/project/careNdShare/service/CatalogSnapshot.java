@@ -0,0 +1,400 @@
+package retouch.project.careNdShare.service;
+
+import retouch.project.careNdShare.dto.ProductSort;
+import retouch.project.careNdShare.dto.ProductSummaryDTO;
+
+import java.time.LocalDateTime;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.RandomAccess;
+
+/**
+ * Immutable, versioned view of every approved product. Products are pre-bucketed by
+ * type/category (including the "all" buckets) and each bucket is pre-sorted for every
+ * {@link ProductSort}, so a catalog read is a couple of map lookups.
+ *
+ * Changes never mutate an existing snapshot: {@link #with} and {@link #without} return a new
+ * snapshot that shares almost everything with this one: the id index and the sorted bucket lists
+ * are chunked, so an event copies the few chunks the product lands in rather than the catalog.
+ */
+public final class CatalogSnapshot {
+
+    private static final String ALL = "all";
+
+    private static final Map<ProductSort, Comparator<ProductSummaryDTO>> COMPARATORS = new EnumMap<>(ProductSort.class);
+
+    static {
+        // Every comparator ends with the id so the orderings are total and binary search finds exact rows
+        Comparator<ProductSummaryDTO> byId = Comparator.comparing(ProductSummaryDTO::getId);
+        COMPARATORS.put(ProductSort.NEWEST, Comparator.comparing(ProductSummaryDTO::getCreatedAt).thenComparing(byId).reversed());
+        COMPARATORS.put(ProductSort.OLDEST, Comparator.comparing(ProductSummaryDTO::getCreatedAt).thenComparing(byId));
+        COMPARATORS.put(ProductSort.PRICE_LOW, Comparator.comparing(ProductSummaryDTO::getPrice).thenComparing(byId));
+        COMPARATORS.put(ProductSort.PRICE_HIGH, Comparator.comparing(ProductSummaryDTO::getPrice).thenComparing(byId).reversed());
+        COMPARATORS.put(ProductSort.NAME_ASC, Comparator.comparing(ProductSummaryDTO::getName, String.CASE_INSENSITIVE_ORDER).thenComparing(byId));
+        COMPARATORS.put(ProductSort.NAME_DESC, Comparator.comparing(ProductSummaryDTO::getName, String.CASE_INSENSITIVE_ORDER).thenComparing(byId).reversed());
+    }
+
+    private final long version;
+    private final LocalDateTime builtAt;
+    private final ProductIndex byId;
+    // bucket key "type|category" -> sort -> products (a ChunkedList); the map itself is only a few dozen keys
+    private final Map<String, Map<ProductSort, List<ProductSummaryDTO>>> buckets;
+
+    private CatalogSnapshot(long version, ProductIndex byId,
+                            Map<String, Map<ProductSort, List<ProductSummaryDTO>>> buckets) {
+        this.version = version;
+        this.builtAt = LocalDateTime.now();
+        this.byId = byId;
+        this.buckets = buckets;
+    }
+
+    public static CatalogSnapshot empty() {
+        return new CatalogSnapshot(0, ProductIndex.EMPTY, Collections.emptyMap());
+    }
+
+    public static CatalogSnapshot build(long version, Collection<ProductSummaryDTO> products) {
+        Map<String, List<ProductSummaryDTO>> members = new HashMap<>();
+        for (ProductSummaryDTO product : products) {
+            for (String key : bucketKeys(product)) {
+                members.computeIfAbsent(key, k -> new ArrayList<>()).add(product);
+            }
+        }
+
+        Map<String, Map<ProductSort, List<ProductSummaryDTO>>> buckets = new HashMap<>();
+        members.forEach((key, list) -> {
+            Map<ProductSort, List<ProductSummaryDTO>> sorted = new EnumMap<>(ProductSort.class);
+            for (ProductSort sort : ProductSort.values()) {
+                List<ProductSummaryDTO> copy = new ArrayList<>(list);
+                copy.sort(COMPARATORS.get(sort));
+                sorted.put(sort, ChunkedList.of(copy));
+            }
+            buckets.put(key, sorted);
+        });
+
+        return new CatalogSnapshot(version, ProductIndex.of(products), buckets);
+    }
+
+    /**
+     * New snapshot containing the given product (replacing any previous version of it)
+     */
+    public CatalogSnapshot with(ProductSummaryDTO product) {
+        CatalogSnapshot base = byId.get(product.getId()) != null ? without(product.getId()) : this;
+
+        ProductIndex newById = base.byId.with(product);
+
+        Map<String, Map<ProductSort, List<ProductSummaryDTO>>> newBuckets = new HashMap<>(base.buckets);
+        for (String key : bucketKeys(product)) {
+            Map<ProductSort, List<ProductSummaryDTO>> current = base.buckets.get(key);
+            Map<ProductSort, List<ProductSummaryDTO>> sorted = new EnumMap<>(ProductSort.class);
+            for (ProductSort sort : ProductSort.values()) {
+                List<ProductSummaryDTO> list = current != null ? current.get(sort) : ChunkedList.EMPTY;
+                sorted.put(sort, insertSorted(list, product, COMPARATORS.get(sort)));
+            }
+            newBuckets.put(key, sorted);
+        }
+
+        return new CatalogSnapshot(version + 1, newById, newBuckets);
+    }
+
+    /**
+     * New snapshot without the given product; returns a snapshot with a bumped version even if it was absent
+     */
+    public CatalogSnapshot without(Long productId) {
+        ProductSummaryDTO existing = byId.get(productId);
+        if (existing == null) {
+            return new CatalogSnapshot(version + 1, byId, buckets);
+        }
+
+        ProductIndex newById = byId.without(productId);
+
+        Map<String, Map<ProductSort, List<ProductSummaryDTO>>> newBuckets = new HashMap<>(buckets);
+        for (String key : bucketKeys(existing)) {
+            Map<ProductSort, List<ProductSummaryDTO>> current = buckets.get(key);
+            Map<ProductSort, List<ProductSummaryDTO>> sorted = new EnumMap<>(ProductSort.class);
+            for (ProductSort sort : ProductSort.values()) {
+                sorted.put(sort, removeSorted(current.get(sort), existing, COMPARATORS.get(sort)));
+            }
+            if (sorted.get(ProductSort.NEWEST).isEmpty()) {
+                newBuckets.remove(key);
+            } else {
+                newBuckets.put(key, sorted);
+            }
+        }
+
+        return new CatalogSnapshot(version + 1, newById, newBuckets);
+    }
+
+    /**
+     * Approved products for the given filters ("all" or null means no filter), in the given order
+     */
+    public List<ProductSummaryDTO> list(String type, String category, ProductSort sort) {
+        Map<ProductSort, List<ProductSummaryDTO>> bucket = buckets.get(bucketKey(type, category));
+        if (bucket == null) {
+            return Collections.emptyList();
+        }
+        return bucket.get(sort);
+    }
+
+    public Optional<ProductSummaryDTO> get(Long productId) {
+        return Optional.ofNullable(byId.get(productId));
+    }
+
+    public long getVersion() { return version; }
+    public LocalDateTime getBuiltAt() { return builtAt; }
+    public int size() { return byId.size(); }
+
+    private static List<String> bucketKeys(ProductSummaryDTO product) {
+        return List.of(
+                bucketKey(null, null),
+                bucketKey(product.getType(), null),
+                bucketKey(null, product.getCategory()),
+                bucketKey(product.getType(), product.getCategory()));
+    }
+
+    private static String bucketKey(String type, String category) {
+        String t = type == null || type.isEmpty() ? ALL : type;
+        String c = category == null || category.isEmpty() ? ALL : category;
+        return t + "|" + c;
+    }
+
+    private static ChunkedList insertSorted(List<ProductSummaryDTO> list, ProductSummaryDTO product,
+                                            Comparator<ProductSummaryDTO> comparator) {
+        ChunkedList chunked = (ChunkedList) list;
+        int index = chunked.search(product, comparator);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return chunked.inserted(index, product);
+    }
+
+    private static ChunkedList removeSorted(List<ProductSummaryDTO> list, ProductSummaryDTO product,
+                                            Comparator<ProductSummaryDTO> comparator) {
+        ChunkedList chunked = (ChunkedList) list;
+        int index = chunked.search(product, comparator);
+        if (index < 0) {
+            return chunked;
+        }
+        return chunked.removed(index);
+    }
+
+    /**
+     * Immutable sorted list stored as a run of small chunks. An insert or remove copies the one
+     * chunk it touches plus the chunk table, so the "all" buckets are no longer copied per event.
+     */
+    static final class ChunkedList extends AbstractList<ProductSummaryDTO> implements RandomAccess {
+
+        static final int CHUNK_SIZE = 256;
+
+        static final ChunkedList EMPTY = new ChunkedList(new ProductSummaryDTO[0][], new int[0]);
+
+        private final ProductSummaryDTO[][] chunks;
+        // ends[i] is the list index one past the last element of chunks[i]
+        private final int[] ends;
+
+        private ChunkedList(ProductSummaryDTO[][] chunks, int[] ends) {
+            this.chunks = chunks;
+            this.ends = ends;
+        }
+
+        static ChunkedList of(List<ProductSummaryDTO> sorted) {
+            int count = (sorted.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            ProductSummaryDTO[][] chunks = new ProductSummaryDTO[count][];
+            for (int i = 0; i < count; i++) {
+                chunks[i] = sorted.subList(i * CHUNK_SIZE, Math.min(sorted.size(), (i + 1) * CHUNK_SIZE))
+                        .toArray(new ProductSummaryDTO[0]);
+            }
+            return new ChunkedList(chunks, endsOf(chunks));
+        }
+
+        @Override
+        public ProductSummaryDTO get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            int chunk = chunkOf(index);
+            return chunks[chunk][index - startOf(chunk)];
+        }
+
+        @Override
+        public int size() {
+            return ends.length == 0 ? 0 : ends[ends.length - 1];
+        }
+
+        @Override
+        public Iterator<ProductSummaryDTO> iterator() {
+            return Arrays.stream(chunks).flatMap(Arrays::stream).iterator();
+        }
+
+        /**
+         * Same contract as {@link Collections#binarySearch(List, Object, Comparator)}
+         */
+        int search(ProductSummaryDTO key, Comparator<ProductSummaryDTO> comparator) {
+            // Pick the first chunk whose last element is not below the key, then search inside it
+            int low = 0;
+            int high = chunks.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                ProductSummaryDTO[] chunk = chunks[mid];
+                if (comparator.compare(chunk[chunk.length - 1], key) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            if (low == chunks.length) {
+                return -size() - 1;
+            }
+            int found = Arrays.binarySearch(chunks[low], key, comparator);
+            int start = startOf(low);
+            return found >= 0 ? start + found : found - start;
+        }
+
+        ChunkedList inserted(int index, ProductSummaryDTO product) {
+            if (chunks.length == 0) {
+                return new ChunkedList(new ProductSummaryDTO[][] { { product } }, new int[] { 1 });
+            }
+            int chunk = index == size() ? chunks.length - 1 : chunkOf(index);
+            int offset = index - startOf(chunk);
+            ProductSummaryDTO[] source = chunks[chunk];
+            ProductSummaryDTO[] grown = new ProductSummaryDTO[source.length + 1];
+            System.arraycopy(source, 0, grown, 0, offset);
+            grown[offset] = product;
+            System.arraycopy(source, offset, grown, offset + 1, source.length - offset);
+
+            if (grown.length <= 2 * CHUNK_SIZE) {
+                ProductSummaryDTO[][] newChunks = chunks.clone();
+                newChunks[chunk] = grown;
+                return new ChunkedList(newChunks, endsOf(newChunks));
+            }
+            // Split an oversized chunk in two so chunks stay small
+            ProductSummaryDTO[][] newChunks = new ProductSummaryDTO[chunks.length + 1][];
+            System.arraycopy(chunks, 0, newChunks, 0, chunk);
+            newChunks[chunk] = Arrays.copyOfRange(grown, 0, grown.length / 2);
+            newChunks[chunk + 1] = Arrays.copyOfRange(grown, grown.length / 2, grown.length);
+            System.arraycopy(chunks, chunk + 1, newChunks, chunk + 2, chunks.length - chunk - 1);
+            return new ChunkedList(newChunks, endsOf(newChunks));
+        }
+
+        ChunkedList removed(int index) {
+            int chunk = chunkOf(index);
+            int offset = index - startOf(chunk);
+            ProductSummaryDTO[] source = chunks[chunk];
+            if (source.length == 1) {
+                ProductSummaryDTO[][] newChunks = new ProductSummaryDTO[chunks.length - 1][];
+                System.arraycopy(chunks, 0, newChunks, 0, chunk);
+                System.arraycopy(chunks, chunk + 1, newChunks, chunk, chunks.length - chunk - 1);
+                return new ChunkedList(newChunks, endsOf(newChunks));
+            }
+            ProductSummaryDTO[] shrunk = new ProductSummaryDTO[source.length - 1];
+            System.arraycopy(source, 0, shrunk, 0, offset);
+            System.arraycopy(source, offset + 1, shrunk, offset, source.length - offset - 1);
+            ProductSummaryDTO[][] newChunks = chunks.clone();
+            newChunks[chunk] = shrunk;
+            return new ChunkedList(newChunks, endsOf(newChunks));
+        }
+
+        int chunkCount() {
+            return chunks.length;
+        }
+
+        private int chunkOf(int index) {
+            int found = Arrays.binarySearch(ends, index);
+            // An exact hit is the end of that chunk, so the index lives in the next one
+            return found >= 0 ? found + 1 : -found - 1;
+        }
+
+        private int startOf(int chunk) {
+            return chunk == 0 ? 0 : ends[chunk - 1];
+        }
+
+        private static int[] endsOf(ProductSummaryDTO[][] chunks) {
+            int[] ends = new int[chunks.length];
+            int total = 0;
+            for (int i = 0; i < chunks.length; i++) {
+                total += chunks[i].length;
+                ends[i] = total;
+            }
+            return ends;
+        }
+    }
+
+    /**
+     * Immutable id -> product map split into hash shards. An update copies the one shard the id
+     * falls in plus the shard table; every other shard is shared with the previous snapshot.
+     */
+    static final class ProductIndex {
+
+        private static final int SHARDS = 1024;
+
+        static final ProductIndex EMPTY = of(Collections.emptyList());
+
+        private final Map<Long, ProductSummaryDTO>[] shards;
+        private final int size;
+
+        private ProductIndex(Map<Long, ProductSummaryDTO>[] shards, int size) {
+            this.shards = shards;
+            this.size = size;
+        }
+
+        @SuppressWarnings("unchecked")
+        static ProductIndex of(Collection<ProductSummaryDTO> products) {
+            Map<Long, ProductSummaryDTO>[] shards = new Map[SHARDS];
+            int size = 0;
+            for (ProductSummaryDTO product : products) {
+                int shard = shardOf(product.getId());
+                if (shards[shard] == null) {
+                    shards[shard] = new HashMap<>();
+                }
+                if (shards[shard].put(product.getId(), product) == null) {
+                    size++;
+                }
+            }
+            return new ProductIndex(shards, size);
+        }
+
+        ProductSummaryDTO get(Long id) {
+            Map<Long, ProductSummaryDTO> shard = shards[shardOf(id)];
+            return shard == null ? null : shard.get(id);
+        }
+
+        int size() {
+            return size;
+        }
+
+        ProductIndex with(ProductSummaryDTO product) {
+            int shard = shardOf(product.getId());
+            Map<Long, ProductSummaryDTO> copy = shards[shard] == null ? new HashMap<>() : new HashMap<>(shards[shard]);
+            boolean added = copy.put(product.getId(), product) == null;
+            Map<Long, ProductSummaryDTO>[] newShards = shards.clone();
+            newShards[shard] = copy;
+            return new ProductIndex(newShards, added ? size + 1 : size);
+        }
+
+        ProductIndex without(Long id) {
+            int shard = shardOf(id);
+            if (shards[shard] == null || !shards[shard].containsKey(id)) {
+                return this;
+            }
+            Map<Long, ProductSummaryDTO> copy = new HashMap<>(shards[shard]);
+            copy.remove(id);
+            Map<Long, ProductSummaryDTO>[] newShards = shards.clone();
+            newShards[shard] = copy.isEmpty() ? null : copy;
+            return new ProductIndex(newShards, size - 1);
+        }
+
+        private static int shardOf(Long id) {
+            int h = Long.hashCode(id);
+            return (h ^ (h >>> 16)) & (SHARDS - 1);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package retouch.project.careNdShare.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import retouch.project.careNdShare.dto.DashboardBootstrapDTO;
+import retouch.project.careNdShare.dto.ProductResponseDTO;
+import retouch.project.careNdShare.entity.ExchangeRequest;
+import retouch.project.careNdShare.entity.PurchaseRequest;
+import retouch.project.careNdShare.entity.User;
+import retouch.project.careNdShare.repository.ExchangeRequestRepository;
+import retouch.project.careNdShare.repository.ProductRepository;
+import retouch.project.careNdShare.repository.PurchaseRepository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the dashboard bootstrap payload. The per-user queries are independent, so they run
+ * in parallel on a small bounded pool, each in its own read-only transaction that returns
+ * fully loaded data (no lazy loading happens after the transaction ends).
+ */
+@Service
+public class DashboardService {
+
+    private static final int POOL_SIZE = 4;
+    private static final int QUEUE_CAPACITY = 200;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ExchangeRequestRepository exchangeRequestRepository;
+
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+
+    @Autowired
+    private ProductFacetCounter productFacetCounter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // When the queue is full the request thread runs the query itself instead of failing
+    private final ExecutorService executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY), daemonThreads(), new ThreadPoolExecutor.CallerRunsPolicy());
+
+    public DashboardBootstrapDTO bootstrap(User user) {
+        Long userId = user.getId();
+
+        CompletableFuture<List<ProductResponseDTO>> myProducts = readOnly(() ->
+                productRepository.findByUserId(userId).stream()
+                        .map(ProductResponseDTO::new)
+                        .collect(Collectors.toList()));
+        CompletableFuture<List<ExchangeRequest>> exchangeRequests = readOnly(() ->
+                exchangeRequestRepository.findByRequesterIdWithDetails(userId, null));
+        CompletableFuture<List<PurchaseRequest>> purchases = readOnly(() ->
+                purchaseRepository.findByBuyerIdWithDetails(userId));
+        CompletableFuture<Long> salesCount = readOnly(() ->
+                purchaseRepository.countByProductUserId(userId));
+
+        try {
+            CompletableFuture.allOf(myProducts, exchangeRequests, purchases, salesCount).join();
+        } catch (CompletionException e) {
+            throw new RuntimeException("Failed to load dashboard: " + e.getCause().getMessage(), e.getCause());
+        }
+
+        Map<String, Object> profile = new HashMap<>();
+        profile.put("id", user.getId());
+        profile.put("email", user.getEmail());
+        profile.put("firstName", user.getFirstName());
+        profile.put("lastName", user.getLastName());
+        profile.put("admin", user.isAdmin());
+
+        // Available counts come from the in-memory facet counter, no query needed
+        @SuppressWarnings("unchecked")
+        Map<String, Integer> availableByType = (Map<String, Integer>) productFacetCounter
+                .facets(null, null, null, null).get("type");
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("exchangesCount", exchangeRequests.join().size());
+        stats.put("salesCount", salesCount.join());
+        stats.put("listedCount", myProducts.join().size());
+        stats.put("availableExchange", availableByType.getOrDefault("Exchange", 0));
+        stats.put("availableResell", availableByType.getOrDefault("Resell", 0));
+
+        DashboardBootstrapDTO dashboard = new DashboardBootstrapDTO();
+        dashboard.setUser(profile);
+        dashboard.setStats(stats);
+        dashboard.setMyProducts(myProducts.join());
+        dashboard.setExchangeRequests(exchangeRequests.join());
+        dashboard.setPurchases(purchases.join());
+        return dashboard;
+    }
+
+    private <T> CompletableFuture<T> readOnly(Supplier<T> query) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        return CompletableFuture.supplyAsync(() -> transaction.execute(status -> query.get()), executor);
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "dashboard-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -9,14 +9,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
 
 @Service
 public class ExchangeRequestService {
@@ -27,7 +23,11 @@ public class ExchangeRequestService {
     @Autowired
     private ProductRepository productRepository;
 
-    private final String UPLOAD_DIR = "uploads/exchange-items/";
+    @Autowired
+    private ImageRenditionService imageRenditionService;
+
+    @Autowired
+    private ImageStorageService imageStorageService;
 
     public ExchangeRequest submitExchangeRequest(Long targetProductId, String itemName, String category,
                                                  String description, String additionalMessage,
@@ -37,18 +37,8 @@ public class ExchangeRequestService {
         var targetProduct = productRepository.findById(targetProductId)
                 .orElseThrow(() -> new RuntimeException("Target product not found"));
 
-        // Create upload directory if it doesn't exist
-        Path uploadPath = Paths.get(UPLOAD_DIR);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
-        }
-
-        // Generate unique filename
-        String fileName = UUID.randomUUID().toString() + "_" + image.getOriginalFilename();
-        Path filePath = uploadPath.resolve(fileName);
-
-        // Save image file
-        Files.copy(image.getInputStream(), filePath);
+        // Save image file (content-addressed: identical images share one file)
+        String imagePath = imageStorageService.store(image);
 
         // Create exchange request
         ExchangeRequest exchangeRequest = new ExchangeRequest();
@@ -56,12 +46,14 @@ public class ExchangeRequestService {
         exchangeRequest.setExchangeItemName(itemName);
         exchangeRequest.setExchangeItemCategory(category);
         exchangeRequest.setExchangeItemDescription(description);
-        exchangeRequest.setExchangeItemImage("/" + UPLOAD_DIR + fileName);
+        exchangeRequest.setExchangeItemImage(imagePath);
         exchangeRequest.setAdditionalMessage(additionalMessage);
         exchangeRequest.setRequester(user);
         exchangeRequest.setStatus("PENDING");
 
-        return exchangeRequestRepository.save(exchangeRequest);
+        ExchangeRequest saved = exchangeRequestRepository.save(exchangeRequest);
+        imageRenditionService.scheduleExchangeRenditions(saved.getId(), saved.getExchangeItemImage());
+        return saved;
     }
 
     public List<ExchangeRequest> getUserExchangeRequests(Long userId, String status) {
@@ -105,6 +97,7 @@ public class ExchangeRequestService {
         ExchangeRequest request = exchangeRequestRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Exchange request not found"));
         exchangeRequestRepository.delete(request);
+        imageStorageService.release(request.getExchangeItemImage());
     }
 
     public Map<String, Object> getExchangeRequestStats() {
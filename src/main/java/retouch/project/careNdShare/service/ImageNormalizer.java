@@ -0,0 +1,232 @@
+package retouch.project.careNdShare.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.geom.AffineTransform;
+import java.awt.image.AffineTransformOp;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Re-encodes uploaded images before they are stored: scaled down to a bounded long side,
+ * rotated upright according to their EXIF orientation and written as a JPEG without any
+ * metadata (so camera EXIF, including GPS, never reaches the public upload URLs).
+ *
+ * Large images are decoded with source subsampling, and only a few decodes run at once, so a
+ * burst of 20-megapixel photos doesn't exhaust the heap.
+ */
+@Service
+public class ImageNormalizer {
+
+    // Refuse "decompression bombs" outright
+    private static final long MAX_PIXELS = 100_000_000L;
+
+    @Value("${app.uploads.normalize:true}")
+    private boolean enabled;
+
+    @Value("${app.uploads.max-dimension:1600}")
+    private int maxDimension;
+
+    @Value("${app.uploads.max-concurrent-decodes:2}")
+    private int maxConcurrentDecodes;
+
+    private Semaphore decodePermits;
+
+    @PostConstruct
+    void init() {
+        decodePermits = new Semaphore(Math.max(1, maxConcurrentDecodes));
+    }
+
+    /**
+     * Write the normalized version of source to target. Returns false (leaving target untouched)
+     * when the image should be stored as uploaded: normalization is off, it's a GIF (which may be
+     * animated), or it's a format/colour space ImageIO can't decode.
+     */
+    public boolean normalize(Path source, ImageType type, Path target) throws IOException {
+        if (!enabled || type == ImageType.GIF) {
+            return false;
+        }
+
+        try {
+            if (!decodePermits.tryAcquire(30, TimeUnit.SECONDS)) {
+                throw new RuntimeException("Too many images are being processed, please try again");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to process image", e);
+        }
+
+        try {
+            BufferedImage image = decode(source);
+            if (image == null) {
+                return false;
+            }
+            BufferedImage scaled = ImageRenditionService.scaleToFit(image, maxDimension);
+            if (type == ImageType.JPEG) {
+                scaled = orient(scaled, exifOrientation(source));
+            }
+            ImageRenditionService.writeJpeg(scaled, target);
+            return true;
+        } finally {
+            decodePermits.release();
+        }
+    }
+
+    private BufferedImage decode(Path source) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > MAX_PIXELS) {
+                    throw new IllegalArgumentException("Image dimensions are too large");
+                }
+
+                // Decode at no less than twice the target size, then scale smoothly from there
+                int step = Math.max(1, Math.max(width, height) / (2 * maxDimension));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } catch (IIOException e) {
+                // e.g. CMYK JPEGs: keep the upload as it is rather than failing it
+                System.err.println("Could not decode upload " + source + " for re-encoding: " + e.getMessage());
+                return null;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * EXIF orientation (1-8) of a JPEG, or 1 if it has none; reads only the APP1 segment
+     */
+    static int exifOrientation(Path file) {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (input.readUnsignedShort() != 0xFFD8) {
+                return 1;
+            }
+            while (true) {
+                int marker = input.readUnsignedShort();
+                // Metadata segments all come before the image data (SOS)
+                if ((marker & 0xFF00) != 0xFF00 || marker == 0xFFDA || marker == 0xFFD9) {
+                    return 1;
+                }
+                int length = input.readUnsignedShort() - 2;
+                if (length < 0) {
+                    return 1;
+                }
+                if (marker == 0xFFE1) {
+                    int orientation = orientationFromExif(input.readNBytes(length));
+                    if (orientation > 0) {
+                        return orientation;
+                    }
+                } else {
+                    input.skipNBytes(length);
+                }
+            }
+        } catch (IOException e) {
+            return 1;
+        }
+    }
+
+    // 0 if the segment isn't EXIF (APP1 is also used for XMP)
+    private static int orientationFromExif(byte[] segment) {
+        if (segment.length < 14 || segment[0] != 'E' || segment[1] != 'x' || segment[2] != 'i'
+                || segment[3] != 'f' || segment[4] != 0 || segment[5] != 0) {
+            return 0;
+        }
+        ByteBuffer tiff = ByteBuffer.wrap(segment, 6, segment.length - 6).slice();
+        if (tiff.get(0) == 'I' && tiff.get(1) == 'I') {
+            tiff.order(ByteOrder.LITTLE_ENDIAN);
+        } else if (tiff.get(0) != 'M' || tiff.get(1) != 'M') {
+            return 1;
+        }
+
+        int ifd = tiff.getInt(4);
+        if (ifd < 8 || ifd + 2 > tiff.limit()) {
+            return 1;
+        }
+        int entries = tiff.getShort(ifd) & 0xFFFF;
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > tiff.limit()) {
+                break;
+            }
+            if ((tiff.getShort(entry) & 0xFFFF) == 0x0112) {
+                int value = tiff.getShort(entry + 8) & 0xFFFF;
+                return value >= 1 && value <= 8 ? value : 1;
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Apply an EXIF orientation so the image is stored upright
+     */
+    static BufferedImage orient(BufferedImage image, int orientation) {
+        if (orientation <= 1 || orientation > 8) {
+            return image;
+        }
+        int w = image.getWidth();
+        int h = image.getHeight();
+
+        AffineTransform transform = new AffineTransform();
+        switch (orientation) {
+            case 2: // mirrored
+                transform.scale(-1, 1);
+                transform.translate(-w, 0);
+                break;
+            case 3: // rotated 180
+                transform.translate(w, h);
+                transform.rotate(Math.PI);
+                break;
+            case 4: // mirrored vertically
+                transform.scale(1, -1);
+                transform.translate(0, -h);
+                break;
+            case 5: // transposed
+                transform.rotate(-Math.PI / 2);
+                transform.scale(-1, 1);
+                break;
+            case 6: // needs 90 clockwise
+                transform.translate(h, 0);
+                transform.rotate(Math.PI / 2);
+                break;
+            case 7: // transversed
+                transform.translate(h, w);
+                transform.rotate(Math.PI / 2);
+                transform.scale(-1, 1);
+                break;
+            default: // 8: needs 90 counter-clockwise
+                transform.translate(0, w);
+                transform.rotate(3 * Math.PI / 2);
+                break;
+        }
+
+        boolean swap = orientation >= 5;
+        BufferedImage oriented = new BufferedImage(swap ? h : w, swap ? w : h, BufferedImage.TYPE_INT_RGB);
+        new AffineTransformOp(transform, AffineTransformOp.TYPE_NEAREST_NEIGHBOR).filter(image, oriented);
+        return oriented;
+    }
+}
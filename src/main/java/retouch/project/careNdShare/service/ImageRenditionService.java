@@ -0,0 +1,261 @@
+package retouch.project.careNdShare.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import retouch.project.careNdShare.repository.ExchangeRequestRepository;
+import retouch.project.careNdShare.repository.ProductRepository;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates downsized JPEG renditions of uploaded images in the background.
+ *
+ * Each upload gets a thumbnail (list cards) and a medium image (detail views), written next to
+ * the original as {@code <name>.thumb.jpg} / {@code <name>.medium.jpg} and recorded on the entity.
+ * Work runs on a small bounded pool; if the queue is full the upload is simply left without
+ * renditions and clients keep using the original image.
+ */
+@Service
+public class ImageRenditionService {
+
+    public static final int THUMBNAIL_SIZE = 320;
+    public static final int MEDIUM_SIZE = 1024;
+    private static final float JPEG_QUALITY = 0.82f;
+    private static final int PLACEHOLDER_SIZE = 8;
+    // Matches the placeholder columns on Product and ExchangeRequest
+    public static final int PLACEHOLDER_MAX_LENGTH = 1024;
+
+    private static final int QUEUE_CAPACITY = 100;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ImageStorageService imageStorageService;
+
+    @Autowired
+    private ExchangeRequestRepository exchangeRequestRepository;
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @Autowired
+    private ProductDetailCache productDetailCache;
+
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            workerCount(), workerCount(), 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY), renditionThreads());
+
+    public void scheduleProductRenditions(Long productId, String imagePath) {
+        submit(imagePath, () -> {
+            Renditions renditions = generate(imagePath);
+            if (renditions != null) {
+                productRepository.updateRenditions(productId, renditions.thumbnailPath, renditions.mediumPath,
+                        renditions.placeholder, LocalDateTime.now());
+                // Only matters if the product was approved while we were working
+                productCatalogCache.reload(productId);
+                productDetailCache.invalidate(productId);
+            }
+        });
+    }
+
+    public void scheduleExchangeRenditions(Long exchangeRequestId, String imagePath) {
+        submit(imagePath, () -> {
+            Renditions renditions = generate(imagePath);
+            if (renditions != null) {
+                exchangeRequestRepository.updateRenditions(exchangeRequestId, renditions.thumbnailPath,
+                        renditions.mediumPath, renditions.placeholder);
+            }
+        });
+    }
+
+    private void submit(String imagePath, RenditionTask task) {
+        if (imagePath == null) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    System.err.println("Failed to generate renditions for " + imagePath + ": " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            System.err.println("Rendition queue full, serving original for " + imagePath);
+        }
+    }
+
+    /**
+     * Writes both renditions for the image at the given public path ("/uploads/...").
+     * Returns null if the file can't be decoded (e.g. a format ImageIO doesn't support).
+     */
+    Renditions generate(String imagePath) throws IOException {
+        String thumbnailPath = renditionPath(imagePath, "thumb");
+        String mediumPath = renditionPath(imagePath, "medium");
+
+        // Uploads are content-addressed, so a re-upload of the same image already has its renditions;
+        // the placeholder is cheap to recompute from the existing thumbnail
+        if (imageStorageService.exists(thumbnailPath) && imageStorageService.exists(mediumPath)) {
+            BufferedImage thumbnail = read(thumbnailPath);
+            return new Renditions(thumbnailPath, mediumPath, thumbnail != null ? placeholder(thumbnail) : null);
+        }
+
+        BufferedImage source = read(imagePath);
+        if (source == null) {
+            return null;
+        }
+
+        BufferedImage thumbnail = scaleToFit(source, THUMBNAIL_SIZE);
+        store(thumbnail, thumbnailPath);
+        store(scaleToFit(source, MEDIUM_SIZE), mediumPath);
+        return new Renditions(thumbnailPath, mediumPath, placeholder(thumbnail));
+    }
+
+    private BufferedImage read(String publicPath) throws IOException {
+        try (InputStream input = imageStorageService.open(publicPath)) {
+            return ImageIO.read(input);
+        }
+    }
+
+    /**
+     * A few-hundred-byte blurred preview as a data URI: the image averaged down to at most
+     * PLACEHOLDER_SIZE pixels a side, as a PNG. Browsers stretch it under the real image while that loads.
+     * Returns null in the unlikely case it doesn't fit the column.
+     */
+    static String placeholder(BufferedImage source) throws IOException {
+        double scale = (double) PLACEHOLDER_SIZE / Math.max(source.getWidth(), source.getHeight());
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        // Area averaging (rather than bilinear sampling) so every source pixel contributes to the colours
+        BufferedImage tiny = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = tiny.createGraphics();
+        try {
+            graphics.drawImage(source.getScaledInstance(width, height, Image.SCALE_AREA_AVERAGING), 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(tiny, "png", png);
+        String dataUri = "data:image/png;base64," + Base64.getEncoder().encodeToString(png.toByteArray());
+        return dataUri.length() <= PLACEHOLDER_MAX_LENGTH ? dataUri : null;
+    }
+
+    // Encode locally, then hand the file to the blob store
+    private void store(BufferedImage image, String publicPath) throws IOException {
+        Path temp = imageStorageService.newTempFile();
+        try {
+            writeJpeg(image, temp);
+            imageStorageService.move(publicPath, temp, "image/jpeg");
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Public path of a rendition: "/uploads/abc_photo.png" -> "/uploads/abc_photo.png.thumb.jpg"
+    static String renditionPath(String imagePath, String suffix) {
+        return imagePath + "." + suffix + ".jpg";
+    }
+
+    // Downscale so the longer side is at most maxSize (never upscales); flattens alpha onto white for JPEG
+    static BufferedImage scaleToFit(BufferedImage source, int maxSize) {
+        double scale = Math.min(1.0, (double) maxSize / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    // Write to a temp file and move into place so readers never see a half-written rendition
+    static void writeJpeg(BufferedImage image, Path target) throws IOException {
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(temp.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int workerCount() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    }
+
+    private static ThreadFactory renditionThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "image-rendition-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            // Keep request threads responsive while images are being resized
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @FunctionalInterface
+    private interface RenditionTask {
+        void run() throws IOException;
+    }
+
+    static final class Renditions {
+        final String thumbnailPath;
+        final String mediumPath;
+        final String placeholder;
+
+        Renditions(String thumbnailPath, String mediumPath, String placeholder) {
+            this.thumbnailPath = thumbnailPath;
+            this.mediumPath = mediumPath;
+            this.placeholder = placeholder;
+        }
+    }
+}
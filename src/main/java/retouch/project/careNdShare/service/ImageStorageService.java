@@ -0,0 +1,391 @@
+package retouch.project.careNdShare.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import retouch.project.careNdShare.entity.StoredBlob;
+import retouch.project.careNdShare.repository.StoredBlobRepository;
+import retouch.project.careNdShare.storage.BlobStore;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed upload storage.
+ *
+ * Uploads are hashed (SHA-256) while they are streamed to a temp file, then stored once under
+ * {@code uploads/<h0h1>/<h2h3>/<hash>.<ext>} (two levels of hash-prefix directories, so no single
+ * directory grows past a few thousand files). Uploading the same bytes again only bumps the blob's reference
+ * count, and the file is deleted when the last reference is released. Because a URL always
+ * names the same bytes, uploads can be served with immutable, long-lived cache headers.
+ *
+ * New uploads are re-encoded (bounded size, JPEG, no metadata) before they are hashed, so
+ * the stored blob is the normalized image.
+ *
+ * Bytes are staged in a local temp file (the hash, and so the key, is only known at the end) and
+ * then handed to the configured {@link BlobStore}; public paths stay "/uploads/<key>" either way.
+ */
+@Service
+public class ImageStorageService {
+
+    public static final String UPLOAD_DIR = "uploads/";
+    // Local staging directory, whatever the blob store backend
+    static final String TEMP_DIR = UPLOAD_DIR + ".tmp/";
+    // Not served: ImageController refuses paths with dot-prefixed segments
+    static final String ORIGINALS_PREFIX = ".originals/";
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final Pattern EXTENSION = Pattern.compile("[a-z0-9]{1,5}");
+    private static final Pattern SHARDED = Pattern.compile("/uploads/[0-9a-f]{2}/[0-9a-f]{2}/[0-9a-f]{64}\\.[a-z0-9]{1,5}");
+    private static final int LOCK_STRIPES = 64;
+
+    // Striped by hash: store/release of the same content are serialized on this node, different content runs in parallel
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @Autowired
+    private StoredBlobRepository storedBlobRepository;
+
+    @Autowired
+    private ImageNormalizer imageNormalizer;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Value("${app.uploads.keep-originals:false}")
+    private boolean keepOriginals;
+
+    /**
+     * Store an uploaded image and return its public path ("/uploads/ab/cd/<hash>.<ext>").
+     * The format is taken from the file's magic bytes; anything that isn't a supported image is rejected.
+     */
+    public String store(MultipartFile file) throws IOException {
+        Path temp = newTempFile();
+        MessageDigest digest = sha256();
+        ImageType type;
+        try (InputStream input = new BufferedInputStream(file.getInputStream())) {
+            input.mark(ImageType.SNIFF_LENGTH);
+            byte[] head = input.readNBytes(ImageType.SNIFF_LENGTH);
+            input.reset();
+            type = requireImage(head, head.length);
+            Files.copy(new DigestInputStream(input, digest), temp);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return storeImage(temp, type, digest);
+    }
+
+    /**
+     * Store bytes whose type has already been established (e.g. existing uploads being migrated);
+     * the extension comes from the original file name.
+     */
+    public String store(InputStream input, String originalFilename, String contentType) throws IOException {
+        return copyAndCommit(input, extensionOf(originalFilename), contentType);
+    }
+
+    private String copyAndCommit(InputStream input, String extension, String contentType) throws IOException {
+        Path temp = newTempFile();
+        MessageDigest digest = sha256();
+        long size;
+        try (DigestInputStream hashing = new DigestInputStream(input, digest)) {
+            size = Files.copy(hashing, temp);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        String hash = HexFormat.of().formatHex(digest.digest());
+        return commit(temp, hash, extension, size, contentType);
+    }
+
+    /**
+     * Store an uploaded image that was written to a file from {@link #newTempFile()} (the file is
+     * moved or deleted). It is re-encoded by {@link ImageNormalizer} first where possible; with
+     * app.uploads.keep-originals the uploaded bytes are also kept, privately, next to the store.
+     * digest is the SHA-256 of the file's bytes if the caller already computed it while writing.
+     */
+    public String storeImage(Path temp, ImageType type, MessageDigest digest) throws IOException {
+        Path normalized = newTempFile();
+        boolean reencoded;
+        try {
+            reencoded = imageNormalizer.normalize(temp, type, normalized);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            Files.deleteIfExists(normalized);
+            throw e;
+        }
+
+        if (!reencoded) {
+            String hash = digest != null ? HexFormat.of().formatHex(digest.digest()) : hashOfFile(temp);
+            return commit(temp, hash, type.getExtension(), Files.size(temp), type.getContentType());
+        }
+
+        String path = commit(normalized, hashOfFile(normalized), ImageType.JPEG.getExtension(),
+                Files.size(normalized), ImageType.JPEG.getContentType());
+        if (keepOriginals) {
+            blobStore.move(originalKey(hashOf(path)), temp, type.getContentType());
+        } else {
+            Files.deleteIfExists(temp);
+        }
+        return path;
+    }
+
+    // A fresh local staging file in uploads/.tmp (on the file-system store's volume, so moving into place is a rename)
+    public Path newTempFile() throws IOException {
+        Path tempDir = Paths.get(TEMP_DIR);
+        Files.createDirectories(tempDir);
+        return tempDir.resolve(UUID.randomUUID().toString());
+    }
+
+    /**
+     * The image type of the given leading bytes; throws if they aren't a supported image
+     */
+    public static ImageType requireImage(byte[] head, int length) {
+        ImageType type = ImageType.sniff(head, length);
+        if (type == null) {
+            throw new IllegalArgumentException("Unsupported image type: only JPEG, PNG, GIF and WebP images are accepted");
+        }
+        return type;
+    }
+
+    // Serialized per hash so two concurrent uploads of the same new content can't both create the blob on this
+    // node; the primary key catches the same race between nodes
+    private String commit(Path temp, String hash, String extension, long size, String contentType)
+            throws IOException {
+        synchronized (lockFor(hash)) {
+            return commitLocked(temp, hash, extension, size, contentType);
+        }
+    }
+
+    private String commitLocked(Path temp, String hash, String extension, long size, String contentType)
+            throws IOException {
+        Optional<StoredBlob> existing = storedBlobRepository.findById(hash);
+        if (existing.isPresent()) {
+            return addReference(existing.get(), temp);
+        }
+
+        StoredBlob blob = new StoredBlob(hash, extension, size, contentType);
+        blobStore.move(keyOf(publicPath(blob)), temp, contentType);
+        try {
+            storedBlobRepository.save(blob);
+        } catch (DataIntegrityViolationException e) {
+            // Another node stored the same bytes first; the object we wrote is identical, so just take a reference
+            storedBlobRepository.incrementRefCount(hash, LocalDateTime.now());
+        }
+        return publicPath(blob);
+    }
+
+    private String addReference(StoredBlob blob, Path temp) throws IOException {
+        String key = keyOf(publicPath(blob));
+        if (blobStore.exists(key)) {
+            Files.deleteIfExists(temp);
+        } else {
+            // Blob stored before the sharded layout and not migrated yet: we have its bytes right here
+            blobStore.move(key, temp, blob.getContentType());
+        }
+        storedBlobRepository.incrementRefCount(blob.getHash(), LocalDateTime.now());
+        return publicPath(blob);
+    }
+
+    /**
+     * Drop one reference to the upload at the given public path; deletes the file (and its
+     * renditions) when nothing references it any more. Paths that aren't content-addressed
+     * (uploads from before this store existed) are left alone.
+     */
+    public void release(String publicPath) {
+        String hash = hashOf(publicPath);
+        if (hash == null) {
+            return;
+        }
+
+        synchronized (lockFor(hash)) {
+            if (storedBlobRepository.decrementRefCount(hash) == 0) {
+                return;
+            }
+            Optional<StoredBlob> blob = storedBlobRepository.findById(hash);
+            // Conditional, so a reference taken meanwhile by another node keeps the row (and the files)
+            if (blob.isEmpty() || storedBlobRepository.deleteIfUnreferenced(hash) == 0) {
+                return;
+            }
+            deleteFiles(blob.get());
+        }
+    }
+
+    private void deleteFiles(StoredBlob blob) {
+        String path = publicPath(blob);
+        try {
+            String key = keyOf(path);
+            blobStore.delete(key);
+            blobStore.delete(keyOf(ImageRenditionService.renditionPath(path, "thumb")));
+            blobStore.delete(keyOf(ImageRenditionService.renditionPath(path, "medium")));
+            blobStore.delete(originalKey(blob.getHash()));
+
+            // The flat (pre-sharding) location, on local disk, may still hold a copy of an unmigrated blob
+            String flat = flatPublicPath(blob);
+            Files.deleteIfExists(toFile(flat));
+            Files.deleteIfExists(toFile(ImageRenditionService.renditionPath(flat, "thumb")));
+            Files.deleteIfExists(toFile(ImageRenditionService.renditionPath(flat, "medium")));
+        } catch (IOException e) {
+            System.err.println("Failed to delete unreferenced upload " + path + ": " + e.getMessage());
+        }
+    }
+
+    private Object lockFor(String hash) {
+        return locks[Math.floorMod(hash.hashCode(), LOCK_STRIPES)];
+    }
+
+    /**
+     * Drop one reference without deleting anything (e.g. a rejected listing, which may still be
+     * approved). Once unreferenced, the files are reclaimed by OrphanImageSweeper after its grace period.
+     */
+    public void dropReference(String publicPath) {
+        String hash = hashOf(publicPath);
+        if (hash != null) {
+            storedBlobRepository.dropReference(hash, LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Take back a reference dropped with {@link #dropReference}; false if the blob has been reclaimed since
+     */
+    public boolean reacquire(String publicPath) {
+        String hash = hashOf(publicPath);
+        return hash == null || storedBlobRepository.incrementRefCount(hash, LocalDateTime.now()) > 0;
+    }
+
+    public static String publicPath(StoredBlob blob) {
+        return shardedPath(blob.getHash(), blob.getExtension());
+    }
+
+    public static String shardedPath(String hash, String extension) {
+        return "/" + UPLOAD_DIR + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + "." + extension;
+    }
+
+    // Where blobs were stored before the sharded layout
+    static String flatPublicPath(StoredBlob blob) {
+        return "/" + UPLOAD_DIR + blob.getHash() + "." + blob.getExtension();
+    }
+
+    /**
+     * Whether the bytes at a public path can never change: a sharded blob or one of its renditions
+     */
+    public static boolean isContentAddressed(String publicPath) {
+        for (String suffix : new String[]{"thumb", "medium"}) {
+            String rendition = ImageRenditionService.renditionPath("", suffix);
+            if (publicPath != null && publicPath.endsWith(rendition)) {
+                return isSharded(publicPath.substring(0, publicPath.length() - rendition.length()));
+            }
+        }
+        return isSharded(publicPath);
+    }
+
+    public static boolean isSharded(String publicPath) {
+        return publicPath != null && SHARDED.matcher(publicPath).matches();
+    }
+
+    // ".../<hash>.<ext>" -> hash, or null for legacy (UUID-named) uploads
+    public static String hashOf(String publicPath) {
+        if (publicPath == null) {
+            return null;
+        }
+        String fileName = publicPath.substring(publicPath.lastIndexOf('/') + 1);
+        int dot = fileName.indexOf('.');
+        String hash = dot < 0 ? fileName : fileName.substring(0, dot);
+        return HASH.matcher(hash).matches() ? hash : null;
+    }
+
+    // The uploaded bytes behind a re-encoded blob, when originals are kept
+    static String originalKey(String hash) {
+        return ORIGINALS_PREFIX + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash;
+    }
+
+    // "/uploads/ab/cd/<hash>.jpg" -> "ab/cd/<hash>.jpg", the key in the blob store
+    public static String keyOf(String publicPath) {
+        String prefix = "/" + UPLOAD_DIR;
+        if (!publicPath.startsWith(prefix)) {
+            throw new IllegalArgumentException("Not an upload path: " + publicPath);
+        }
+        return publicPath.substring(prefix.length());
+    }
+
+    /**
+     * Read the upload at a public path: from the blob store, or from local disk for legacy uploads not migrated yet
+     */
+    public InputStream open(String publicPath) throws IOException {
+        try {
+            return blobStore.open(keyOf(publicPath));
+        } catch (NoSuchFileException e) {
+            return Files.newInputStream(toFile(publicPath));
+        }
+    }
+
+    public boolean exists(String publicPath) throws IOException {
+        return blobStore.exists(keyOf(publicPath));
+    }
+
+    // Store derived files (renditions, migrated copies) under a public path
+    public void put(String publicPath, Path source, String contentType) throws IOException {
+        blobStore.put(keyOf(publicPath), source, contentType);
+    }
+
+    public void move(String publicPath, Path temp, String contentType) throws IOException {
+        blobStore.move(keyOf(publicPath), temp, contentType);
+    }
+
+    private static String hashOfFile(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream input = new DigestInputStream(Files.newInputStream(file), digest)) {
+            input.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Public URL paths start with "/" but files live relative to the working directory
+    static Path toFile(String publicPath) {
+        return Paths.get(publicPath.startsWith("/") ? publicPath.substring(1) : publicPath);
+    }
+
+    private static String extensionOf(String originalFilename) {
+        if (originalFilename != null) {
+            int dot = originalFilename.lastIndexOf('.');
+            if (dot >= 0) {
+                String extension = originalFilename.substring(dot + 1).toLowerCase(Locale.ROOT);
+                if (EXTENSION.matcher(extension).matches()) {
+                    return extension.equals("jpeg") ? "jpg" : extension;
+                }
+            }
+        }
+        return "img";
+    }
+
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package retouch.project.careNdShare.service;
+
+/**
+ * Image formats accepted for uploads, recognised from their leading "magic" bytes rather than
+ * the client-supplied file name or Content-Type.
+ */
+public enum ImageType {
+    JPEG("jpg", "image/jpeg"),
+    PNG("png", "image/png"),
+    GIF("gif", "image/gif"),
+    WEBP("webp", "image/webp");
+
+    // Enough bytes to tell every supported format apart (WebP needs 12)
+    public static final int SNIFF_LENGTH = 12;
+
+    private final String extension;
+    private final String contentType;
+
+    ImageType(String extension, String contentType) {
+        this.extension = extension;
+        this.contentType = contentType;
+    }
+
+    public String getExtension() { return extension; }
+    public String getContentType() { return contentType; }
+
+    /**
+     * Detect the format from the first bytes of a file, or null if it isn't a supported image
+     */
+    public static ImageType sniff(byte[] head, int length) {
+        if (startsWith(head, length, 0xFF, 0xD8, 0xFF)) {
+            return JPEG;
+        }
+        if (startsWith(head, length, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return PNG;
+        }
+        if (startsWith(head, length, 'G', 'I', 'F', '8') && length >= 6
+                && (head[4] == '7' || head[4] == '9') && head[5] == 'a') {
+            return GIF;
+        }
+        if (startsWith(head, length, 'R', 'I', 'F', 'F') && length >= 12
+                && head[8] == 'W' && head[9] == 'E' && head[10] == 'B' && head[11] == 'P') {
+            return WEBP;
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] head, int length, int... magic) {
+        if (length < magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if ((head[i] & 0xFF) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,75 @@
+package retouch.project.careNdShare.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Writes large listings as a JSON array without materializing them.
+ *
+ * The query runs on the response thread inside its own read-only transaction; each row is mapped,
+ * written and then dropped, and the persistence context is cleared every batch so memory stays
+ * flat no matter how many rows the listing has.
+ */
+@Service
+public class JsonStreamingService {
+
+    // Rows written between flushes to the client / persistence-context clears
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public <T> StreamingResponseBody jsonArray(Supplier<Stream<T>> query, Function<T, ?> mapper) {
+        return outputStream -> {
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            transaction.setReadOnly(true);
+
+            // The servlet container flushes at the end; don't flush after every row
+            ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+            transaction.executeWithoutResult(status -> {
+                try (Stream<T> rows = query.get();
+                     JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                    generator.writeStartArray();
+
+                    int written = 0;
+                    Iterator<T> iterator = rows.iterator();
+                    while (iterator.hasNext()) {
+                        writer.writeValue(generator, mapper.apply(iterator.next()));
+                        if (++written % BATCH_SIZE == 0) {
+                            generator.flush();
+                            entityManager.clear();
+                        }
+                    }
+
+                    generator.writeEndArray();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        };
+    }
+}
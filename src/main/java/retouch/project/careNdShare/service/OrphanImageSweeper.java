@@ -0,0 +1,362 @@
+package retouch.project.careNdShare.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import retouch.project.careNdShare.repository.ExchangeRequestRepository;
+import retouch.project.careNdShare.repository.ProductRepository;
+import retouch.project.careNdShare.repository.StoredBlobRepository;
+import retouch.project.careNdShare.storage.BlobInfo;
+import retouch.project.careNdShare.storage.BlobStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Finds uploaded files that no live product (anything but a rejected one) or exchange request
+ * references any more (rejected and deleted listings, deleted users, removed exchange requests)
+ * and reclaims them.
+ *
+ * The store is swept one hash shard ("ab/") at a time: the shard's objects are streamed from the
+ * blob store and compared against the image paths under that shard, read from the database in
+ * keyset pages. Only one shard's references are held in memory, never the full file list. Files
+ * younger than the grace period are left alone (an upload may not have been attached to its
+ * listing yet), and every candidate is re-checked against the database right before it is removed.
+ * Blobs whose stored_blobs row still counts references, or was referenced within the grace period
+ * (a deduplicated upload about to be attached), are never reclaimed.
+ *
+ * Orphans are either deleted or, in quarantine mode, moved under ".quarantine/<date>/" (not
+ * served) and deleted once the retention period has passed.
+ */
+@Service
+public class OrphanImageSweeper {
+
+    private static final String QUARANTINE_PREFIX = ".quarantine/";
+    private static final int REFERENCE_PAGE_SIZE = 1000;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ExchangeRequestRepository exchangeRequestRepository;
+
+    @Autowired
+    private StoredBlobRepository storedBlobRepository;
+
+    @Value("${app.storage.gc.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.storage.gc.grace-hours:24}")
+    private long graceHours;
+
+    // "quarantine" or "delete"
+    @Value("${app.storage.gc.mode:quarantine}")
+    private String mode;
+
+    @Value("${app.storage.gc.quarantine-retention-days:30}")
+    private long quarantineRetentionDays;
+
+    // Pause between shards so the sweep doesn't compete with regular traffic
+    @Value("${app.storage.gc.shard-pause-ms:50}")
+    private long shardPauseMs;
+
+    // Uploads are always staged on local disk (see ImageStorageService.newTempFile), whatever the backend
+    private Path tempDir = Paths.get(ImageStorageService.TEMP_DIR);
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong scanned = new AtomicLong();
+    private final AtomicLong orphans = new AtomicLong();
+    private final AtomicLong quarantined = new AtomicLong();
+    private final AtomicLong deleted = new AtomicLong();
+    private final AtomicLong bytesQuarantined = new AtomicLong();
+    private final AtomicLong bytesReclaimed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+
+    @Scheduled(cron = "${app.storage.gc.cron:0 30 3 * * *}")
+    public void scheduledSweep() {
+        if (enabled) {
+            sweep();
+        }
+    }
+
+    /**
+     * Start a sweep on a background thread; returns false if one is already running
+     */
+    public boolean start() {
+        if (running.get()) {
+            return false;
+        }
+        Thread worker = new Thread(this::sweep, "orphan-image-sweep");
+        worker.setDaemon(true);
+        worker.start();
+        return true;
+    }
+
+    public void sweep() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        for (AtomicLong counter : List.of(scanned, orphans, quarantined, deleted, bytesQuarantined, bytesReclaimed, failed)) {
+            counter.set(0);
+        }
+        startedAt = LocalDateTime.now();
+        finishedAt = null;
+
+        Instant cutoff = Instant.now().minus(Duration.ofHours(graceHours));
+        try {
+            for (int shard = 0; shard < 256; shard++) {
+                sweepShard(String.format("%02x/", shard), cutoff);
+                sweepOriginals(String.format("%02x/", shard), cutoff);
+                Thread.sleep(shardPauseMs);
+            }
+            sweepLegacyRoot(cutoff);
+            sweepTemp(cutoff);
+            purgeQuarantine();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("Orphan image sweep stopped: " + e.getMessage());
+        } finally {
+            finishedAt = LocalDateTime.now();
+            running.set(false);
+            System.out.println("Orphan image sweep finished: " + scanned.get() + " files scanned, "
+                    + orphans.get() + " orphaned (" + deleted.get() + " deleted, " + quarantined.get()
+                    + " quarantined), " + bytesReclaimed.get() + " bytes reclaimed, "
+                    + bytesQuarantined.get() + " bytes quarantined, " + failed.get() + " failed");
+        }
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", running.get());
+        status.put("mode", mode);
+        status.put("graceHours", graceHours);
+        status.put("scanned", scanned.get());
+        status.put("orphans", orphans.get());
+        status.put("deleted", deleted.get());
+        status.put("quarantined", quarantined.get());
+        status.put("bytesReclaimed", bytesReclaimed.get());
+        status.put("bytesQuarantined", bytesQuarantined.get());
+        status.put("failed", failed.get());
+        status.put("startedAt", startedAt);
+        status.put("finishedAt", finishedAt);
+        return status;
+    }
+
+    // Content-addressed blobs and their renditions: uploads/ab/cd/<hash>.<ext>[.thumb.jpg|.medium.jpg]
+    private void sweepShard(String shard, Instant cutoff) throws IOException {
+        String pattern = "/" + ImageStorageService.UPLOAD_DIR + shard + "%";
+        Set<String> referenced = new HashSet<>();
+        collect(pattern, productRepository::findImagePathsAfter, referenced);
+        collect(pattern, exchangeRequestRepository::findImagePathsAfter, referenced);
+
+        try (Stream<BlobInfo> objects = blobStore.list(shard, true)) {
+            for (Iterator<BlobInfo> it = objects.iterator(); it.hasNext(); ) {
+                BlobInfo object = it.next();
+                scanned.incrementAndGet();
+                String imagePath = imagePathOf(object.getKey());
+                if (!referenced.contains(imagePath) && isOrphan(object, imagePath, cutoff)) {
+                    reclaim(object);
+                }
+            }
+        }
+    }
+
+    // Uploads from before the sharded layout sit directly under the root; checked one by one
+    private void sweepLegacyRoot(Instant cutoff) throws IOException {
+        try (Stream<BlobInfo> objects = blobStore.list("", false)) {
+            for (Iterator<BlobInfo> it = objects.iterator(); it.hasNext(); ) {
+                BlobInfo object = it.next();
+                scanned.incrementAndGet();
+                if (isOrphan(object, imagePathOf(object.getKey()), cutoff)) {
+                    reclaim(object);
+                }
+            }
+        }
+    }
+
+    // Kept originals (app.uploads.keep-originals) live exactly as long as the blob they were re-encoded into
+    private void sweepOriginals(String shard, Instant cutoff) throws IOException {
+        try (Stream<BlobInfo> objects = blobStore.list(ImageStorageService.ORIGINALS_PREFIX + shard, true)) {
+            for (Iterator<BlobInfo> it = objects.iterator(); it.hasNext(); ) {
+                BlobInfo object = it.next();
+                scanned.incrementAndGet();
+                String hash = object.getKey().substring(object.getKey().lastIndexOf('/') + 1);
+                if (object.getLastModified().isBefore(cutoff) && !storedBlobRepository.existsById(hash)) {
+                    orphans.incrementAndGet();
+                    delete(object);
+                }
+            }
+        }
+    }
+
+    // Staging files left behind by crashed or abandoned uploads; listed from local disk, not the blob store
+    private void sweepTemp(Instant cutoff) throws IOException {
+        if (!Files.isDirectory(tempDir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(tempDir)) {
+            for (Iterator<Path> it = files.iterator(); it.hasNext(); ) {
+                Path file = it.next();
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    if (!attributes.isRegularFile()) {
+                        continue;
+                    }
+                    scanned.incrementAndGet();
+                    if (attributes.lastModifiedTime().toInstant().isBefore(cutoff)) {
+                        orphans.incrementAndGet();
+                        if (Files.deleteIfExists(file)) {
+                            deleted.incrementAndGet();
+                            bytesReclaimed.addAndGet(attributes.size());
+                        }
+                    }
+                } catch (IOException e) {
+                    failed.incrementAndGet();
+                    System.err.println("Failed to delete stale upload staging file " + file + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void purgeQuarantine() throws IOException {
+        LocalDate expiry = LocalDate.now(ZoneOffset.UTC).minusDays(quarantineRetentionDays);
+        try (Stream<BlobInfo> objects = blobStore.list(QUARANTINE_PREFIX, true)) {
+            for (Iterator<BlobInfo> it = objects.iterator(); it.hasNext(); ) {
+                BlobInfo object = it.next();
+                String rest = object.getKey().substring(QUARANTINE_PREFIX.length());
+                try {
+                    LocalDate quarantinedOn = LocalDate.parse(rest.substring(0, rest.indexOf('/')));
+                    if (quarantinedOn.isBefore(expiry)) {
+                        delete(object);
+                    }
+                } catch (DateTimeParseException | StringIndexOutOfBoundsException e) {
+                    // Not something we put there; leave it for an operator
+                }
+            }
+        }
+    }
+
+    private boolean isOrphan(BlobInfo object, String imagePath, Instant cutoff) {
+        if (!object.getLastModified().isBefore(cutoff)) {
+            return false;
+        }
+        // The reference set is a snapshot; a listing may have picked up this (deduplicated) image since
+        return productRepository.countLiveByImagePath(imagePath) == 0
+                && exchangeRequestRepository.countByExchangeItemImage(imagePath) == 0
+                && !isReferencedBlob(imagePath, cutoff);
+    }
+
+    private boolean isReferencedBlob(String imagePath, Instant cutoff) {
+        if (!ImageStorageService.isSharded(imagePath)) {
+            return false;
+        }
+        LocalDateTime recent = LocalDateTime.ofInstant(cutoff, ZoneId.systemDefault());
+        return storedBlobRepository.findById(ImageStorageService.hashOf(imagePath))
+                .map(blob -> {
+                    LocalDateTime touched = blob.getLastReferencedAt() != null ? blob.getLastReferencedAt() : blob.getCreatedAt();
+                    return blob.getRefCount() > 0 || touched.isAfter(recent);
+                })
+                .orElse(false);
+    }
+
+    private void reclaim(BlobInfo object) {
+        // The row goes first, and only while it counts no references, so an upload deduplicated
+        // against this blob in the meantime keeps it
+        if (!forgetBlob(object.getKey())) {
+            return;
+        }
+        orphans.incrementAndGet();
+        if ("delete".equalsIgnoreCase(mode)) {
+            delete(object);
+        } else {
+            try {
+                String date = LocalDate.now(ZoneOffset.UTC).toString();
+                blobStore.rename(object.getKey(), QUARANTINE_PREFIX + date + "/" + object.getKey());
+                quarantined.incrementAndGet();
+                bytesQuarantined.addAndGet(object.getSize());
+            } catch (IOException e) {
+                failed.incrementAndGet();
+                System.err.println("Failed to quarantine orphaned upload " + object.getKey() + ": " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void delete(BlobInfo object) {
+        try {
+            blobStore.delete(object.getKey());
+            deleted.incrementAndGet();
+            bytesReclaimed.addAndGet(object.getSize());
+        } catch (IOException e) {
+            failed.incrementAndGet();
+            System.err.println("Failed to delete orphaned upload " + object.getKey() + ": " + e.getMessage());
+        }
+    }
+
+    // Drop the (unreferenced) blob row of an image about to be reclaimed; uploading the same bytes
+    // again simply stores them afresh. False if the row has picked up a reference since it was checked.
+    private boolean forgetBlob(String key) {
+        String publicPath = "/" + ImageStorageService.UPLOAD_DIR + key;
+        if (!ImageStorageService.isSharded(publicPath)) {
+            return true;
+        }
+        String hash = ImageStorageService.hashOf(publicPath);
+        return storedBlobRepository.deleteIfUnreferenced(hash) > 0 || !storedBlobRepository.existsById(hash);
+    }
+
+    // Renditions belong to their image: "/uploads/ab/cd/x.jpg.thumb.jpg" -> "/uploads/ab/cd/x.jpg"
+    private static String imagePathOf(String key) {
+        String path = "/" + ImageStorageService.UPLOAD_DIR + key;
+        for (String suffix : List.of("thumb", "medium")) {
+            String rendition = ImageRenditionService.renditionPath("", suffix);
+            if (path.endsWith(rendition)) {
+                return path.substring(0, path.length() - rendition.length());
+            }
+        }
+        return path;
+    }
+
+    private static void collect(String pattern, PathPageQuery query, Set<String> into) {
+        String after = "";
+        List<String> page;
+        do {
+            page = query.find(pattern, after, Pageable.ofSize(REFERENCE_PAGE_SIZE));
+            into.addAll(page);
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1);
+            }
+        } while (page.size() == REFERENCE_PAGE_SIZE);
+    }
+
+    @FunctionalInterface
+    private interface PathPageQuery {
+        List<String> find(String pattern, String after, Pageable pageable);
+    }
+}
@@ -0,0 +1,12 @@
+package retouch.project.careNdShare.service;
+
+/**
+ * Thrown when the password hashing pool and its queue are full; answered with 503 so clients back
+ * off instead of piling more work onto the server
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+
+    public PasswordHashingBusyException() {
+        super("Too many sign-in requests right now, please try again in a moment");
+    }
+}
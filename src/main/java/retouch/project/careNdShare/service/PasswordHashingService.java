@@ -0,0 +1,141 @@
+package retouch.project.careNdShare.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs BCrypt off the request threads, on a small fixed pool with a bounded queue.
+ *
+ * A burst of logins or registrations can then only occupy this pool, never the Tomcat workers that
+ * serve the catalog. When the queue is full the request is rejected immediately with
+ * PasswordHashingBusyException (a 503) rather than waiting behind hundreds of hashes.
+ *
+ * The returned futures complete on a separate completion pool, so callers' continuations (user
+ * lookups, saves, refresh tokens) do their database work there and never hold a hashing thread.
+ */
+@Service
+public class PasswordHashingService {
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 0 means one thread per core: BCrypt is pure CPU
+    @Value("${app.auth.hashing.threads:0}")
+    private int threads;
+
+    @Value("${app.auth.hashing.queue-capacity:64}")
+    private int queueCapacity;
+
+    // Threads that run the continuations (database work) of finished hashes
+    @Value("${app.auth.hashing.completion-threads:4}")
+    private int completionThreads;
+
+    private ThreadPoolExecutor executor;
+    private ThreadPoolExecutor completionExecutor;
+
+    // Compared against for unknown users, so a login for them takes as long as one with a wrong password
+    private String dummyHash;
+
+    private Timer encodeTimer;
+    private Timer matchesTimer;
+    private Counter rejected;
+
+    @PostConstruct
+    public void init() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threads("password-hash-"), new ThreadPoolExecutor.AbortPolicy());
+        completionExecutor = new ThreadPoolExecutor(completionThreads, completionThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threads("password-hash-completion-"),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        encodeTimer = meterRegistry.timer("auth.password.hash", "operation", "encode");
+        matchesTimer = meterRegistry.timer("auth.password.hash", "operation", "matches");
+        rejected = meterRegistry.counter("auth.password.hash.rejected");
+        Gauge.builder("auth.password.hash.queue", executor, pool -> pool.getQueue().size()).register(meterRegistry);
+        Gauge.builder("auth.password.hash.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+
+        dummyHash = passwordEncoder.encode(UUID.randomUUID().toString());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        completionExecutor.shutdownNow();
+    }
+
+    public CompletableFuture<String> encode(String rawPassword) {
+        return submit(encodeTimer, () -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Whether the password matches the stored hash; a null hash (unknown user) is never a match
+     */
+    public CompletableFuture<Boolean> matches(String rawPassword, String encodedPassword) {
+        return submit(matchesTimer, () -> {
+            if (encodedPassword == null) {
+                passwordEncoder.matches(rawPassword, dummyHash);
+                return false;
+            }
+            return passwordEncoder.matches(rawPassword, encodedPassword);
+        });
+    }
+
+    private <T> CompletableFuture<T> submit(Timer timer, Supplier<T> hashing) {
+        CompletableFuture<T> hashed;
+        try {
+            hashed = CompletableFuture.supplyAsync(() -> timer.record(hashing), executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingBusyException();
+        }
+
+        // Hand the outcome over to the completion pool; dependent stages then run on that thread
+        CompletableFuture<T> result = new CompletableFuture<>();
+        hashed.whenComplete((value, error) -> {
+            try {
+                completionExecutor.execute(() -> {
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                    } else {
+                        result.complete(value);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                rejected.increment();
+                result.completeExceptionally(new PasswordHashingBusyException());
+            }
+        });
+        return result;
+    }
+
+    private static ThreadFactory threads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,167 @@
+package retouch.project.careNdShare.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import retouch.project.careNdShare.dto.ProductSort;
+import retouch.project.careNdShare.dto.ProductSummaryDTO;
+import retouch.project.careNdShare.entity.ProductStatus;
+import retouch.project.careNdShare.repository.ProductRepository;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link CatalogSnapshot} of approved products.
+ *
+ * Readers just dereference the current snapshot - no database access and no locking.
+ * Writers (startup load and product status changes) are serialized and swap in a new
+ * snapshot atomically, so a reader always sees one consistent version.
+ *
+ * Changes made on other nodes never reach this node's events, so {@link #syncFromDatabase()}
+ * polls max(updated_at) and replays every product written since the last sync as a
+ * {@link ProductStatusChangedEvent}; the search index, facets and detail cache follow along.
+ */
+@Service
+public class ProductCatalogCache {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Re-read writes this far behind the last one seen: covers commit order and clock skew between nodes
+    @Value("${app.catalog.sync-overlap-seconds:60}")
+    private long syncOverlapSeconds;
+
+    // Newest products.updated_at already reflected in the snapshot
+    private volatile LocalDateTime syncedThrough;
+
+    private final AtomicReference<CatalogSnapshot> snapshot = new AtomicReference<>(CatalogSnapshot.empty());
+
+    // Snapshot versions restart at 1 on every boot, so ETags also carry the start time of this process
+    private final String instanceId = Long.toString(System.currentTimeMillis(), 36);
+
+    @PostConstruct
+    public void init() {
+        rebuild();
+    }
+
+    public CatalogSnapshot current() {
+        return snapshot.get();
+    }
+
+    /**
+     * Strong ETag for any list served from (or consistent with) the given snapshot version
+     */
+    public String catalogETag(CatalogSnapshot catalog) {
+        return "\"c-" + instanceId + "-" + catalog.getVersion() + "\"";
+    }
+
+    /**
+     * Strong ETag for one product's detail view; changes whenever the product's status changes
+     */
+    public String productETag(ProductSummaryDTO product) {
+        return "\"p-" + product.getId() + "-" + toEpochMillis(product.getUpdatedAt()) + "\"";
+    }
+
+    public static long toEpochMillis(LocalDateTime time) {
+        return time == null ? -1 : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Reload every approved product from the database
+     */
+    public synchronized void rebuild() {
+        syncedThrough = productRepository.findLatestUpdate();
+        List<ProductSummaryDTO> approved = productRepository.findApprovedSummaries();
+        snapshot.set(CatalogSnapshot.build(snapshot.get().getVersion() + 1, approved));
+        System.out.println("Catalog snapshot v" + snapshot.get().getVersion() + " loaded with " + approved.size() + " products");
+    }
+
+    /**
+     * Re-read one product that is already in the catalog (e.g. its images changed); no-op otherwise
+     */
+    public synchronized void reload(Long productId) {
+        CatalogSnapshot current = snapshot.get();
+        if (current.get(productId).isEmpty()) {
+            return;
+        }
+        snapshot.set(productRepository.findApprovedSummaryById(productId)
+                .map(current::with)
+                .orElseGet(() -> current.without(productId)));
+    }
+
+    /**
+     * Pick up products approved, rejected, sold, edited or deleted through other nodes
+     */
+    @Scheduled(fixedDelayString = "${app.catalog.sync-interval-ms:30000}")
+    public void syncFromDatabase() {
+        LocalDateTime latest = productRepository.findLatestUpdate();
+        if (latest != null && (syncedThrough == null || latest.isAfter(syncedThrough))) {
+            LocalDateTime since = syncedThrough == null
+                    ? LocalDateTime.of(1970, 1, 1, 0, 0)
+                    : syncedThrough.minusSeconds(syncOverlapSeconds);
+            int replayed = 0;
+            for (Object[] change : productRepository.findChangesSince(since)) {
+                if (replay((Long) change[0], (ProductStatus) change[1], (LocalDateTime) change[2])) {
+                    replayed++;
+                }
+            }
+            syncedThrough = latest;
+            if (replayed > 0) {
+                System.out.println("Catalog sync replayed " + replayed + " product changes");
+            }
+        }
+
+        // Deletes leave no updated_at behind; they only show up as a difference in the approved count
+        if (productRepository.countApprovedProducts() != snapshot.get().size()) {
+            Set<Long> approvedIds = new HashSet<>(productRepository.findApprovedIds());
+            for (ProductSummaryDTO product : snapshot.get().list(null, null, ProductSort.OLDEST)) {
+                if (!approvedIds.contains(product.getId())) {
+                    eventPublisher.publishEvent(ProductStatusChangedEvent.deleted(product.getId(), ProductStatus.APPROVED));
+                }
+            }
+        }
+    }
+
+    // Publishes a change for a product the snapshot disagrees with; true if it did
+    private boolean replay(Long productId, ProductStatus status, LocalDateTime updatedAt) {
+        Optional<ProductSummaryDTO> cached = snapshot.get().get(productId);
+        if (status == ProductStatus.APPROVED) {
+            if (cached.isPresent() && updatedAt.equals(cached.get().getUpdatedAt())) {
+                return false;
+            }
+        } else if (cached.isEmpty()) {
+            return false;
+        }
+        ProductStatus previousStatus = cached.isPresent() ? ProductStatus.APPROVED : null;
+        eventPublisher.publishEvent(new ProductStatusChangedEvent(productId, previousStatus, status));
+        return true;
+    }
+
+    // Runs first so later listeners (search index, facets, ...) can read the patched snapshot
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductStatusChanged(ProductStatusChangedEvent event) {
+        CatalogSnapshot current = snapshot.get();
+        Long productId = event.getProductId();
+
+        Optional<ProductSummaryDTO> approved = event.getNewStatus() == ProductStatus.APPROVED
+                ? productRepository.findApprovedSummaryById(productId)
+                : Optional.empty();
+
+        snapshot.set(approved.map(current::with).orElseGet(() -> current.without(productId)));
+    }
+}
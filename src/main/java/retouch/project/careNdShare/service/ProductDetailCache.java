@@ -0,0 +1,153 @@
+package retouch.project.careNdShare.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import retouch.project.careNdShare.dto.ProductDetailDTO;
+import retouch.project.careNdShare.repository.ProductRepository;
+
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, TTL-based cache of product detail views keyed by product id.
+ *
+ * Concurrent misses for the same id are coalesced: the first caller loads from the database and
+ * everyone else arriving meanwhile waits for that result instead of issuing their own query.
+ * Entries are dropped when the product is approved, rejected or sold.
+ */
+@Service
+public class ProductDetailCache {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.product-detail-cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    @Value("${app.product-detail-cache.max-entries:10000}")
+    private int maxEntries;
+
+    private final ConcurrentHashMap<Long, CachedDetail> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, CompletableFuture<Optional<ProductDetailDTO>>> inFlight = new ConcurrentHashMap<>();
+
+    // Bumped on every invalidation; a load that overlapped one must not be cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private Counter hits;
+    private Counter misses;
+    private Counter coalesced;
+
+    @PostConstruct
+    public void init() {
+        hits = meterRegistry.counter("product.detail.cache", "result", "hit");
+        misses = meterRegistry.counter("product.detail.cache", "result", "miss");
+        coalesced = meterRegistry.counter("product.detail.cache", "result", "coalesced");
+        Gauge.builder("product.detail.cache.size", entries, ConcurrentHashMap::size).register(meterRegistry);
+    }
+
+    /**
+     * Detail view of an approved product, or empty if it doesn't exist or isn't approved
+     */
+    public Optional<ProductDetailDTO> get(Long productId) {
+        CachedDetail cached = entries.get(productId);
+        if (cached != null && !cached.isExpired()) {
+            hits.increment();
+            return Optional.of(cached.detail);
+        }
+
+        CompletableFuture<Optional<ProductDetailDTO>> load = new CompletableFuture<>();
+        CompletableFuture<Optional<ProductDetailDTO>> pending = inFlight.putIfAbsent(productId, load);
+        if (pending != null) {
+            coalesced.increment();
+            return await(pending);
+        }
+
+        misses.increment();
+        long invalidationsBefore = invalidations.get();
+        try {
+            Optional<ProductDetailDTO> detail = productRepository.findApprovedDetailById(productId);
+            if (detail.isPresent() && invalidations.get() == invalidationsBefore) {
+                put(productId, detail.get());
+            }
+            load.complete(detail);
+            return detail;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(productId, load);
+        }
+    }
+
+    public void invalidate(Long productId) {
+        invalidations.incrementAndGet();
+        entries.remove(productId);
+    }
+
+    public void clear() {
+        invalidations.incrementAndGet();
+        entries.clear();
+    }
+
+    @Order(3)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductStatusChanged(ProductStatusChangedEvent event) {
+        invalidate(event.getProductId());
+    }
+
+    private void put(Long productId, ProductDetailDTO detail) {
+        if (entries.size() >= maxEntries) {
+            evict();
+        }
+        entries.put(productId, new CachedDetail(detail, System.currentTimeMillis() + ttlSeconds * 1000));
+    }
+
+    // Drop expired entries first; if still full, drop arbitrary entries (hash order) until there is room
+    private void evict() {
+        entries.values().removeIf(CachedDetail::isExpired);
+        Iterator<Long> ids = entries.keySet().iterator();
+        while (entries.size() >= maxEntries && ids.hasNext()) {
+            ids.next();
+            ids.remove();
+        }
+    }
+
+    private static Optional<ProductDetailDTO> await(CompletableFuture<Optional<ProductDetailDTO>> pending) {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static final class CachedDetail {
+        private final ProductDetailDTO detail;
+        private final long expiresAt;
+
+        private CachedDetail(ProductDetailDTO detail, long expiresAt) {
+            this.detail = detail;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package retouch.project.careNdShare.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import retouch.project.careNdShare.dto.ProductSort;
+import retouch.project.careNdShare.dto.ProductSummaryDTO;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Precomputed facet counts (type, category, condition, price bucket) for approved products.
+ *
+ * Counts are kept per combination of facet values and adjusted by +1/-1 when a product enters
+ * or leaves the catalog, so answering a facet request only walks the combinations - its cost
+ * depends on the number of distinct facet values, not on the number of products.
+ */
+@Service
+public class ProductFacetCounter {
+
+    public static final String TYPE = "type";
+    public static final String CATEGORY = "category";
+    public static final String CONDITION = "condition";
+    public static final String PRICE = "price";
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    // Immutable combination -> count map, replaced on every change
+    private final AtomicReference<Map<FacetKey, Integer>> counts = new AtomicReference<>(Collections.emptyMap());
+    // product id -> combination it was counted under, so it can be decremented after it left the snapshot
+    private final Map<Long, FacetKey> counted = new ConcurrentHashMap<>();
+
+    private static final class FacetKey {
+        final String type;
+        final String category;
+        final String condition;
+        final String price;
+
+        FacetKey(ProductSummaryDTO product) {
+            this.type = product.getType();
+            this.category = product.getCategory();
+            this.condition = product.getCondition();
+            this.price = priceBucket(product.getPrice());
+        }
+
+        String value(String facet) {
+            switch (facet) {
+                case TYPE: return type;
+                case CATEGORY: return category;
+                case CONDITION: return condition;
+                default: return price;
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof FacetKey)) return false;
+            FacetKey other = (FacetKey) o;
+            return Objects.equals(type, other.type) && Objects.equals(category, other.category)
+                    && Objects.equals(condition, other.condition) && Objects.equals(price, other.price);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, category, condition, price);
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        rebuild();
+    }
+
+    public synchronized void rebuild() {
+        Map<FacetKey, Integer> fresh = new HashMap<>();
+        counted.clear();
+        for (ProductSummaryDTO product : productCatalogCache.current().list(null, null, ProductSort.OLDEST)) {
+            FacetKey key = new FacetKey(product);
+            fresh.merge(key, 1, Integer::sum);
+            counted.put(product.getId(), key);
+        }
+        counts.set(Collections.unmodifiableMap(fresh));
+    }
+
+    // Runs after ProductCatalogCache has patched the snapshot
+    @Order(2)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductStatusChanged(ProductStatusChangedEvent event) {
+        Map<FacetKey, Integer> updated = new HashMap<>(counts.get());
+
+        FacetKey previous = counted.remove(event.getProductId());
+        if (previous != null) {
+            updated.computeIfPresent(previous, (k, count) -> count > 1 ? count - 1 : null);
+        }
+
+        productCatalogCache.current().get(event.getProductId()).ifPresent(product -> {
+            FacetKey key = new FacetKey(product);
+            updated.merge(key, 1, Integer::sum);
+            counted.put(product.getId(), key);
+        });
+
+        counts.set(Collections.unmodifiableMap(updated));
+    }
+
+    /**
+     * Counts for every facet given the current filters (null or "all" = not filtered).
+     * Each facet is counted with all the other filters applied but not its own, so the
+     * dashboard can show how many items switching that filter would give.
+     */
+    public Map<String, Object> facets(String type, String category, String condition, String price) {
+        Map<String, String> filters = new HashMap<>();
+        putFilter(filters, TYPE, type);
+        putFilter(filters, CATEGORY, category);
+        putFilter(filters, CONDITION, condition);
+        putFilter(filters, PRICE, price);
+
+        Map<String, Map<String, Integer>> facetCounts = new LinkedHashMap<>();
+        for (String facet : new String[]{TYPE, CATEGORY, CONDITION, PRICE}) {
+            facetCounts.put(facet, new TreeMap<>());
+        }
+        int total = 0;
+
+        for (Map.Entry<FacetKey, Integer> entry : counts.get().entrySet()) {
+            FacetKey key = entry.getKey();
+            int count = entry.getValue();
+
+            if (matches(key, filters, null)) {
+                total += count;
+            }
+            for (Map.Entry<String, Map<String, Integer>> facet : facetCounts.entrySet()) {
+                if (matches(key, filters, facet.getKey()) && key.value(facet.getKey()) != null) {
+                    facet.getValue().merge(key.value(facet.getKey()), count, Integer::sum);
+                }
+            }
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("total", total);
+        response.putAll(facetCounts);
+        return response;
+    }
+
+    private static boolean matches(FacetKey key, Map<String, String> filters, String ignoredFacet) {
+        for (Map.Entry<String, String> filter : filters.entrySet()) {
+            if (!filter.getKey().equals(ignoredFacet) && !filter.getValue().equals(key.value(filter.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void putFilter(Map<String, String> filters, String facet, String value) {
+        if (value != null && !value.isEmpty() && !value.equals("all")) {
+            filters.put(facet, value);
+        }
+    }
+
+    static String priceBucket(Double price) {
+        if (price == null || price <= 0) return "free";
+        if (price < 500) return "under_500";
+        if (price < 1000) return "500_1000";
+        if (price < 5000) return "1000_5000";
+        return "5000_plus";
+    }
+}
@@ -0,0 +1,573 @@
+package retouch.project.careNdShare.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import retouch.project.careNdShare.dto.ProductSearchResponse;
+import retouch.project.careNdShare.dto.ProductSort;
+import retouch.project.careNdShare.dto.ProductSummaryDTO;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-process inverted index over the name, description, category and type of approved products.
+ *
+ * Products get dense internal doc ids, and each term's posting is a pair of primitive arrays
+ * (ascending doc ids, precomputed BM25 term weights), so a million products fit in a few hundred
+ * MB and a query is a few sequential array scans, starting from its rarest word. Terms live in a sorted map so the last query
+ * word can be matched as a prefix (search-as-you-type). Hits are ranked with BM25, with name
+ * matches weighted highest. The index is filled from the catalog snapshot at startup and then
+ * updated incrementally from {@link ProductStatusChangedEvent}s; postings are copied on write,
+ * so searches never lock.
+ */
+@Service
+public class ProductSearchIndex {
+
+    private static final float NAME_BOOST = 3.0f;
+    private static final float CATEGORY_BOOST = 1.5f;
+    private static final float TYPE_BOOST = 1.5f;
+    private static final float DESCRIPTION_BOOST = 1.0f;
+
+    // Prefix matches score a little below exact term matches
+    private static final float PREFIX_WEIGHT = 0.8f;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    private static final double BM25_K1 = 1.2;
+    private static final double BM25_B = 0.75;
+
+    public static final int MAX_RESULTS = 100;
+
+    // Removed products leave holes in the doc id space; rebuild once the holes outnumber the products
+    private static final int MIN_COMPACTION_HOLES = 10_000;
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    // Replaced as a whole by rebuild(), patched by events; both under this object's monitor
+    private volatile Index index = new Index(16);
+
+    /**
+     * Immutable posting list: the doc ids containing a term in ascending order, and for each the
+     * BM25 term weight, tf * (k1 + 1) / (tf + k1 * (1 - b + b * length / avgLength)). The weight is
+     * fixed when the doc is indexed; the average length drifts slowly and every rebuild refreshes it.
+     * A query only multiplies it by the term's idf.
+     */
+    private static final class Posting {
+        final int[] docs;
+        final float[] weights;
+
+        Posting(int[] docs, float[] weights) {
+            this.docs = docs;
+            this.weights = weights;
+        }
+
+        int size() {
+            return docs.length;
+        }
+
+        // New doc ids are always the highest, so adding is an append
+        Posting with(int doc, float weight) {
+            int[] newDocs = Arrays.copyOf(docs, docs.length + 1);
+            float[] newWeights = Arrays.copyOf(weights, weights.length + 1);
+            newDocs[docs.length] = doc;
+            newWeights[weights.length] = weight;
+            return new Posting(newDocs, newWeights);
+        }
+
+        // Null once the last doc is gone
+        Posting without(int doc) {
+            int at = Arrays.binarySearch(docs, doc);
+            if (at < 0) {
+                return this;
+            }
+            if (docs.length == 1) {
+                return null;
+            }
+            int[] newDocs = new int[docs.length - 1];
+            float[] newWeights = new float[weights.length - 1];
+            System.arraycopy(docs, 0, newDocs, 0, at);
+            System.arraycopy(docs, at + 1, newDocs, at, docs.length - at - 1);
+            System.arraycopy(weights, 0, newWeights, 0, at);
+            System.arraycopy(weights, at + 1, newWeights, at, weights.length - at - 1);
+            return new Posting(newDocs, newWeights);
+        }
+    }
+
+    /**
+     * Growable posting used while building the whole index
+     */
+    private static final class PostingBuilder {
+        int[] docs = new int[4];
+        float[] weights = new float[4];
+        int size;
+
+        void add(int doc, float weight) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            docs[size] = doc;
+            weights[size] = weight;
+            size++;
+        }
+
+        Posting build() {
+            return new Posting(Arrays.copyOf(docs, size), Arrays.copyOf(weights, size));
+        }
+    }
+
+    private static final class Index {
+        final ConcurrentSkipListMap<String, Posting> postings = new ConcurrentSkipListMap<>();
+        // doc id -> indexed product (null once removed); a doc is stored here before any posting
+        // mentions it, and the array is only ever replaced by a larger copy
+        volatile ProductSummaryDTO[] products;
+        volatile int liveDocs;
+        volatile long totalLength;
+        // Writer-only state
+        final Map<Long, Integer> docIds = new HashMap<>();
+        int nextDoc;
+
+        Index(int capacity) {
+            products = new ProductSummaryDTO[capacity];
+        }
+
+        int newDoc(ProductSummaryDTO product, int length) {
+            int doc = nextDoc++;
+            if (doc == products.length) {
+                products = Arrays.copyOf(products, doc * 2);
+            }
+            products[doc] = product;
+            docIds.put(product.getId(), doc);
+            liveDocs++;
+            totalLength += length;
+            return doc;
+        }
+
+        double avgLength() {
+            return liveDocs == 0 ? 1.0 : (double) totalLength / liveDocs;
+        }
+
+        int holes() {
+            return nextDoc - liveDocs;
+        }
+    }
+
+    /**
+     * The postings one query word matches (the word itself and, for the last word, its prefix
+     * expansions), each with the factor its weights are scaled by: idf, times PREFIX_WEIGHT for expansions
+     */
+    private static final class WordMatch {
+        final List<Posting> postings = new ArrayList<>();
+        final List<Float> scales = new ArrayList<>();
+        long entries;
+
+        void add(Posting posting, float scale) {
+            postings.add(posting);
+            scales.add(scale);
+            entries += posting.size();
+        }
+    }
+
+    /**
+     * Scored docs of a word or query so far, in ascending doc id order. A single posting is used as
+     * is, with its idf as the scale, so scores are scores[i] * scale.
+     */
+    private static final class Hits {
+        static final Hits EMPTY = new Hits(new int[0], new float[0], 0, 1.0f);
+
+        final int[] docs;
+        final float[] scores;
+        final int size;
+        final float scale;
+
+        Hits(int[] docs, float[] scores, int size, float scale) {
+            this.docs = docs;
+            this.scores = scores;
+            this.size = size;
+            this.scale = scale;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        rebuild();
+    }
+
+    /**
+     * Rebuild the whole index from the current catalog snapshot (which is loaded from ProductRepository)
+     */
+    public synchronized void rebuild() {
+        List<ProductSummaryDTO> products = productCatalogCache.current().list(null, null, ProductSort.OLDEST);
+        Index built = new Index(Math.max(16, products.size()));
+        // Weights need the average length up front
+        long totalLength = 0;
+        for (ProductSummaryDTO product : products) {
+            totalLength += lengthOf(product);
+        }
+        double avgLength = products.isEmpty() ? 1.0 : (double) totalLength / products.size();
+
+        Map<String, PostingBuilder> builders = new HashMap<>();
+        for (ProductSummaryDTO product : products) {
+            Map<String, Float> terms = new HashMap<>();
+            int length = termsOf(product, terms);
+            int doc = built.newDoc(product, length);
+            for (Map.Entry<String, Float> term : terms.entrySet()) {
+                builders.computeIfAbsent(term.getKey(), k -> new PostingBuilder())
+                        .add(doc, termWeight(term.getValue(), length, avgLength));
+            }
+        }
+        builders.forEach((term, builder) -> built.postings.put(term, builder.build()));
+        index = built;
+        System.out.println("Search index built with " + built.liveDocs + " products and " + built.postings.size() + " terms");
+    }
+
+    // Runs after ProductCatalogCache has patched the snapshot
+    @Order(1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductStatusChanged(ProductStatusChangedEvent event) {
+        remove(event.getProductId());
+        productCatalogCache.current().get(event.getProductId()).ifPresent(this::add);
+        Index current = index;
+        if (current.holes() > Math.max(MIN_COMPACTION_HOLES, current.liveDocs)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Ranked search. Every query word must match; the last word also matches as a prefix.
+     * Null filters are ignored.
+     */
+    public ProductSearchResponse search(String query, String type, String category, String condition,
+                                        Double minPrice, Double maxPrice, int limit) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty()) {
+            return new ProductSearchResponse(query, 0, Collections.emptyList());
+        }
+
+        Index current = index;
+        ProductSummaryDTO[] products = current.products;
+        int docCount = current.liveDocs;
+
+        List<WordMatch> matches = new ArrayList<>(words.size());
+        for (int i = 0; i < words.size(); i++) {
+            WordMatch match = match(current, words.get(i), i == words.size() - 1, docCount);
+            if (match.postings.isEmpty()) {
+                return new ProductSearchResponse(query, 0, Collections.emptyList());
+            }
+            matches.add(match);
+        }
+
+        // Every word must match, so start from the rarest and only look the others up for its docs
+        matches.sort(Comparator.comparingLong(match -> match.entries));
+        Hits hits = collect(matches.get(0), products.length);
+        for (int i = 1; i < matches.size() && hits.size > 0; i++) {
+            hits = restrict(hits, matches.get(i));
+        }
+
+        boolean filtered = isFilter(type) || isFilter(category) || isFilter(condition)
+                || minPrice != null || maxPrice != null;
+        int max = Math.max(1, Math.min(limit, MAX_RESULTS));
+        // Min-heap of positions in hits: lowest score first, and among equal scores the later doc.
+        // All scores in hits share one scale, so comparing the stored values is enough.
+        Hits ranked = hits;
+        PriorityQueue<Integer> top = new PriorityQueue<>(max + 1, (a, b) -> {
+            int byScore = Float.compare(ranked.scores[a], ranked.scores[b]);
+            return byScore != 0 ? byScore : Integer.compare(ranked.docs[b], ranked.docs[a]);
+        });
+        int total = 0;
+
+        for (int i = 0; i < hits.size; i++) {
+            if (!filtered && top.size() == max && hits.scores[i] <= hits.scores[top.peek()]) {
+                // Can't reach the page, and without filters there is nothing to check before counting it
+                total++;
+                continue;
+            }
+            ProductSummaryDTO product = products[hits.docs[i]];
+            if (product == null || (filtered && !matchesFilters(product, type, category, condition, minPrice, maxPrice))) {
+                continue;
+            }
+            total++;
+            if (top.size() < max) {
+                top.offer(i);
+            } else if (hits.scores[i] > hits.scores[top.peek()]) {
+                top.poll();
+                top.offer(i);
+            }
+        }
+
+        List<ProductSummaryDTO> items = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            items.add(products[hits.docs[top.poll()]]);
+        }
+        Collections.reverse(items);
+
+        return new ProductSearchResponse(query, total, items);
+    }
+
+    public int size() {
+        return index.liveDocs;
+    }
+
+    private static WordMatch match(Index current, String word, boolean prefix, int docCount) {
+        WordMatch match = new WordMatch();
+        Posting exact = current.postings.get(word);
+        if (exact != null) {
+            match.add(exact, idf(exact, docCount));
+        }
+
+        if (prefix && word.length() >= MIN_PREFIX_LENGTH) {
+            int expansions = 0;
+            for (Posting posting : current.postings.subMap(word, false, word + Character.MAX_VALUE, false).values()) {
+                if (++expansions > MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+                match.add(posting, PREFIX_WEIGHT * idf(posting, docCount));
+            }
+        }
+        return match;
+    }
+
+    // Every doc the word matches; a doc matched by several prefix expansions keeps its best score
+    private static Hits collect(WordMatch match, int docSpace) {
+        if (match.postings.size() == 1) {
+            Posting posting = match.postings.get(0);
+            return new Hits(posting.docs, posting.weights, posting.size(), match.scales.get(0));
+        }
+
+        if (match.entries * 64 > docSpace) {
+            // Large unions: keep the best score per doc in a dense array, then read it back in doc order
+            float[] best = new float[docSpace];
+            int size = 0;
+            for (int p = 0; p < match.postings.size(); p++) {
+                Posting posting = match.postings.get(p);
+                float scale = match.scales.get(p);
+                int[] docs = posting.docs;
+                float[] weights = posting.weights;
+                for (int i = 0; i < docs.length; i++) {
+                    float score = scale * weights[i];
+                    float previous = best[docs[i]];
+                    if (previous == 0) {
+                        size++;
+                    }
+                    if (score > previous) {
+                        best[docs[i]] = score;
+                    }
+                }
+            }
+            int[] docs = new int[size];
+            float[] scores = new float[size];
+            int next = 0;
+            for (int doc = 0; next < size; doc++) {
+                if (best[doc] > 0) {
+                    docs[next] = doc;
+                    scores[next++] = best[doc];
+                }
+            }
+            return new Hits(docs, scores, size, 1.0f);
+        }
+
+        // Small unions: sort (doc, score) pairs packed into longs; scores are positive, so their
+        // float bits order like the scores and the last entry of each doc is its best
+        long[] packed = new long[(int) match.entries];
+        int next = 0;
+        for (int p = 0; p < match.postings.size(); p++) {
+            Posting posting = match.postings.get(p);
+            float scale = match.scales.get(p);
+            for (int i = 0; i < posting.docs.length; i++) {
+                packed[next++] = ((long) posting.docs[i] << 32) | Float.floatToRawIntBits(scale * posting.weights[i]);
+            }
+        }
+        Arrays.sort(packed);
+        int[] docs = new int[packed.length];
+        float[] scores = new float[packed.length];
+        int size = 0;
+        for (int i = 0; i < packed.length; i++) {
+            if (i + 1 < packed.length && (packed[i + 1] >>> 32) == (packed[i] >>> 32)) {
+                continue;
+            }
+            docs[size] = (int) (packed[i] >>> 32);
+            scores[size++] = Float.intBitsToFloat((int) packed[i]);
+        }
+        return new Hits(docs, scores, size, 1.0f);
+    }
+
+    // The hits the word also matches, with the word's score added. Postings of similar length are
+    // merged with the hits; when one side is much shorter, its docs are binary searched in the other.
+    private static Hits restrict(Hits hits, WordMatch match) {
+        float[] best = new float[hits.size];
+        for (int p = 0; p < match.postings.size(); p++) {
+            Posting posting = match.postings.get(p);
+            float scale = match.scales.get(p);
+            int[] docs = posting.docs;
+            float[] weights = posting.weights;
+
+            if (docs.length * 8L < hits.size) {
+                int from = 0;
+                for (int j = 0; j < docs.length && from < hits.size; j++) {
+                    int at = Arrays.binarySearch(hits.docs, from, hits.size, docs[j]);
+                    if (at >= 0) {
+                        best[at] = Math.max(best[at], scale * weights[j]);
+                        from = at + 1;
+                    } else {
+                        from = -at - 1;
+                    }
+                }
+            } else if (docs.length <= hits.size * 8L) {
+                int i = 0;
+                int j = 0;
+                while (i < hits.size && j < docs.length) {
+                    if (hits.docs[i] == docs[j]) {
+                        best[i] = Math.max(best[i], scale * weights[j]);
+                        i++;
+                        j++;
+                    } else if (hits.docs[i] < docs[j]) {
+                        i++;
+                    } else {
+                        j++;
+                    }
+                }
+            } else {
+                int from = 0;
+                for (int i = 0; i < hits.size && from < docs.length; i++) {
+                    int at = Arrays.binarySearch(docs, from, docs.length, hits.docs[i]);
+                    if (at >= 0) {
+                        best[i] = Math.max(best[i], scale * weights[at]);
+                        from = at + 1;
+                    } else {
+                        from = -at - 1;
+                    }
+                }
+            }
+        }
+
+        int[] docs = new int[hits.size];
+        float[] scores = new float[hits.size];
+        int size = 0;
+        for (int i = 0; i < hits.size; i++) {
+            if (best[i] > 0) {
+                docs[size] = hits.docs[i];
+                scores[size++] = hits.scores[i] * hits.scale + best[i];
+            }
+        }
+        return new Hits(docs, scores, size, 1.0f);
+    }
+
+    private static float idf(Posting posting, int docCount) {
+        int docFrequency = posting.size();
+        return (float) Math.log(1 + (docCount - docFrequency + 0.5) / (docFrequency + 0.5));
+    }
+
+    private static float termWeight(float tf, int length, double avgLength) {
+        return (float) (tf * (BM25_K1 + 1) / (tf + BM25_K1 * (1 - BM25_B + BM25_B * length / avgLength)));
+    }
+
+    private static boolean isFilter(String value) {
+        return value != null && !value.equals("all");
+    }
+
+    private static boolean matchesFilters(ProductSummaryDTO product, String type, String category, String condition,
+                                          Double minPrice, Double maxPrice) {
+        if (type != null && !type.equals("all") && !type.equals(product.getType())) return false;
+        if (category != null && !category.equals("all") && !category.equals(product.getCategory())) return false;
+        if (condition != null && !condition.equals("all") && !condition.equals(product.getCondition())) return false;
+        if (minPrice != null && product.getPrice() < minPrice) return false;
+        if (maxPrice != null && product.getPrice() > maxPrice) return false;
+        return true;
+    }
+
+    private void add(ProductSummaryDTO product) {
+        Index current = index;
+        Map<String, Float> terms = new HashMap<>();
+        int length = termsOf(product, terms);
+        int doc = current.newDoc(product, length);
+        double avgLength = current.avgLength();
+        for (Map.Entry<String, Float> term : terms.entrySet()) {
+            float weight = termWeight(term.getValue(), length, avgLength);
+            Posting posting = current.postings.get(term.getKey());
+            current.postings.put(term.getKey(), posting == null
+                    ? new Posting(new int[]{doc}, new float[]{weight})
+                    : posting.with(doc, weight));
+        }
+    }
+
+    private void remove(Long productId) {
+        Index current = index;
+        Integer doc = current.docIds.remove(productId);
+        if (doc == null) {
+            return;
+        }
+        ProductSummaryDTO product = current.products[doc];
+        // The indexed product is kept, so its terms can be recomputed instead of stored per doc
+        Map<String, Float> terms = new HashMap<>();
+        int length = termsOf(product, terms);
+        for (String term : terms.keySet()) {
+            Posting posting = current.postings.get(term);
+            if (posting != null) {
+                Posting remaining = posting.without(doc);
+                if (remaining == null) {
+                    current.postings.remove(term);
+                } else {
+                    current.postings.put(term, remaining);
+                }
+            }
+        }
+        current.products[doc] = null;
+        current.liveDocs--;
+        current.totalLength -= length;
+    }
+
+    // Fills term -> boosted frequency for a product and returns its length in tokens
+    private static int termsOf(ProductSummaryDTO product, Map<String, Float> terms) {
+        int length = 0;
+        length += addField(terms, product.getName(), NAME_BOOST);
+        length += addField(terms, product.getDescription(), DESCRIPTION_BOOST);
+        length += addField(terms, product.getCategory(), CATEGORY_BOOST);
+        length += addField(terms, product.getType(), TYPE_BOOST);
+        return length;
+    }
+
+    private static int lengthOf(ProductSummaryDTO product) {
+        return tokenize(product.getName()).size() + tokenize(product.getDescription()).size()
+                + tokenize(product.getCategory()).size() + tokenize(product.getType()).size();
+    }
+
+    private static int addField(Map<String, Float> terms, String text, float boost) {
+        List<String> tokens = tokenize(text);
+        for (String token : tokens) {
+            terms.merge(token, boost, Float::sum);
+        }
+        return tokens.size();
+    }
+
+    // Lower-cased runs of letters and digits
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
@@ -1,21 +1,24 @@
 package retouch.project.careNdShare.service;
 
+import org.springframework.data.domain.Pageable;
+import retouch.project.careNdShare.dto.ProductCursor;
+import retouch.project.careNdShare.dto.ProductPageResponse;
 import retouch.project.careNdShare.dto.ProductResponseDTO;
+import retouch.project.careNdShare.dto.ProductSort;
+import retouch.project.careNdShare.dto.ProductSummaryDTO;
 import retouch.project.careNdShare.entity.Product;
 import retouch.project.careNdShare.entity.ProductStatus;
 import retouch.project.careNdShare.entity.User;
 import retouch.project.careNdShare.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,35 +27,47 @@ public class ProductService {
     @Autowired
     private ProductRepository productRepository;
 
-    private final String UPLOAD_DIR = "uploads/";
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private JsonStreamingService jsonStreamingService;
+
+    @Autowired
+    private ImageRenditionService imageRenditionService;
+
+    @Autowired
+    private ImageStorageService imageStorageService;
+
+    public static final int DEFAULT_PAGE_SIZE = 24;
+    public static final int MAX_PAGE_SIZE = 100;
 
     public Product addProduct(Product product, MultipartFile imageFile, User user) throws IOException {
         // Handle image upload
+        String imagePath = null;
         if (imageFile != null && !imageFile.isEmpty()) {
-            String imagePath = saveImage(imageFile);
-            product.setImagePath(imagePath);
+            imagePath = saveImage(imageFile);
         }
+        return addProduct(product, imagePath, user);
+    }
 
+    /**
+     * Create a listing for an image that is already in the upload store (e.g. a completed /api/uploads session)
+     */
+    public Product addProduct(Product product, String imagePath, User user) {
+        product.setImagePath(imagePath);
         product.setUser(user);
         product.setStatus(ProductStatus.PENDING);
         product.setCreatedAt(LocalDateTime.now());
 
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        imageRenditionService.scheduleProductRenditions(saved.getId(), saved.getImagePath());
+        return saved;
     }
 
     private String saveImage(MultipartFile imageFile) throws IOException {
-        // Create uploads directory if it doesn't exist
-        Path uploadPath = Paths.get(UPLOAD_DIR);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
-        }
-
-        // Generate unique filename
-        String fileName = UUID.randomUUID().toString() + "_" + imageFile.getOriginalFilename();
-        Path filePath = uploadPath.resolve(fileName);
-        Files.copy(imageFile.getInputStream(), filePath);
-
-        return "/" + UPLOAD_DIR + fileName;
+        // Content-addressed: identical images share one file
+        return imageStorageService.store(imageFile);
     }
 
     public List<Product> getUserProducts(Long userId) {
@@ -71,24 +86,41 @@ public class ProductService {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
 
+        ProductStatus previousStatus = product.getStatus();
+        if (previousStatus == ProductStatus.REJECTED && !imageStorageService.reacquire(product.getImagePath())) {
+            System.err.println("Image of product " + productId + " was reclaimed after its rejection: " + product.getImagePath());
+        }
         product.setStatus(ProductStatus.APPROVED);
         product.setApprovedAt(LocalDateTime.now());
+        product.setUpdatedAt(product.getApprovedAt());
         product.setRejectionReason(null);
 // Before saving the product
         product.setProductType("your_product_type_value"); // e.g., "PHYSICAL", "DIGITAL", etc.
         productRepository.save(product);
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+
+        eventPublisher.publishEvent(new ProductStatusChangedEvent(productId, previousStatus, ProductStatus.APPROVED));
+        return saved;
     }
 
     public Product rejectProduct(Long productId, String rejectionReason) {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
 
+        ProductStatus previousStatus = product.getStatus();
         product.setStatus(ProductStatus.REJECTED);
         product.setRejectedAt(LocalDateTime.now());
+        product.setUpdatedAt(product.getRejectedAt());
         product.setRejectionReason(rejectionReason);
 
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        // The image stays for the grace period (the listing may still be approved), then the orphan sweep reclaims it
+        if (previousStatus != ProductStatus.REJECTED) {
+            imageStorageService.dropReference(saved.getImagePath());
+        }
+
+        eventPublisher.publishEvent(new ProductStatusChangedEvent(productId, previousStatus, ProductStatus.REJECTED));
+        return saved;
     }
 
     public long getPendingProductsCount() {
@@ -107,6 +139,76 @@ public class ProductService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * One keyset page of approved products. The cursor is the opaque token returned as nextCursor
+     * by the previous page; null starts from the beginning.
+     */
+    public ProductPageResponse<ProductSummaryDTO> getAvailableProductsPage(String type, String category, ProductSort sort,
+                                                                 String cursor, Integer size) {
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        ProductCursor after = cursor == null || cursor.isEmpty() ? null : ProductCursor.decode(cursor, sort);
+
+        // Fetch one extra row to know whether another page exists without a COUNT query
+        List<ProductSummaryDTO> rows = findAvailable(normalizeFilter(type), normalizeFilter(category), sort, after,
+                Pageable.ofSize(pageSize + 1));
+
+        boolean hasMore = rows.size() > pageSize;
+        List<ProductSummaryDTO> items = hasMore ? rows.subList(0, pageSize) : rows;
+
+        String nextCursor = null;
+        if (hasMore) {
+            ProductSummaryDTO last = items.get(items.size() - 1);
+            nextCursor = ProductCursor.after(sort, last.getCreatedAt(), last.getPrice(), last.getName(), last.getId())
+                    .encode();
+        }
+        return new ProductPageResponse<>(items, nextCursor, hasMore, items.size());
+    }
+
+    private List<ProductSummaryDTO> findAvailable(String type, String category, ProductSort sort,
+                                        ProductCursor after, Pageable pageable) {
+        Long cursorId = after != null ? after.getId() : null;
+        switch (sort) {
+            case OLDEST:
+                return productRepository.findAvailableOldest(type, category,
+                        after != null ? after.getCreatedAt() : null, cursorId, pageable);
+            case PRICE_LOW:
+                return productRepository.findAvailablePriceLow(type, category,
+                        after != null ? after.getPrice() : null, cursorId, pageable);
+            case PRICE_HIGH:
+                return productRepository.findAvailablePriceHigh(type, category,
+                        after != null ? after.getPrice() : null, cursorId, pageable);
+            case NAME_ASC:
+                return productRepository.findAvailableNameAsc(type, category,
+                        after != null ? after.getName() : null, cursorId, pageable);
+            case NAME_DESC:
+                return productRepository.findAvailableNameDesc(type, category,
+                        after != null ? after.getName() : null, cursorId, pageable);
+            case NEWEST:
+            default:
+                return productRepository.findAvailableNewest(type, category,
+                        after != null ? after.getCreatedAt() : null, cursorId, pageable);
+        }
+    }
+
+    public List<ProductSummaryDTO> getMostViewedProducts(int limit) {
+        return productRepository.findMostViewed(Pageable.ofSize(Math.max(1, Math.min(limit, MAX_PAGE_SIZE))));
+    }
+
+    // "all" (or no value) means the filter is not applied
+    private String normalizeFilter(String value) {
+        return value == null || value.isEmpty() || value.equals("all") ? null : value;
+    }
+
+    // Streaming variants of the seller/admin listings: written row by row, constant memory
+    public StreamingResponseBody streamUserProductsDTO(Long userId) {
+        return jsonStreamingService.jsonArray(() -> productRepository.streamByUserId(userId), ProductResponseDTO::new);
+    }
+
+    public StreamingResponseBody streamPendingProductsDTO() {
+        return jsonStreamingService.jsonArray(() -> productRepository.streamByStatus(ProductStatus.PENDING),
+                ProductResponseDTO::new);
+    }
+
     public List<ProductResponseDTO> getUserProductsDTO(Long userId) {
         List<Product> userProducts = productRepository.findByUserId(userId);
         return userProducts.stream()
@@ -0,0 +1,36 @@
+package retouch.project.careNdShare.service;
+
+import retouch.project.careNdShare.entity.ProductStatus;
+
+/**
+ * Published whenever a product moves between statuses (approve, reject, sold), or is deleted
+ * (newStatus null).
+ * Listeners keep the in-memory catalog structures in sync with the database.
+ */
+public class ProductStatusChangedEvent {
+    private final Long productId;
+    private final ProductStatus previousStatus;
+    private final ProductStatus newStatus;
+
+    public ProductStatusChangedEvent(Long productId, ProductStatus previousStatus, ProductStatus newStatus) {
+        this.productId = productId;
+        this.previousStatus = previousStatus;
+        this.newStatus = newStatus;
+    }
+
+    public static ProductStatusChangedEvent deleted(Long productId, ProductStatus previousStatus) {
+        return new ProductStatusChangedEvent(productId, previousStatus, null);
+    }
+
+    public Long getProductId() { return productId; }
+    public ProductStatus getPreviousStatus() { return previousStatus; }
+    public ProductStatus getNewStatus() { return newStatus; }
+
+    public boolean enteredCatalog() {
+        return newStatus == ProductStatus.APPROVED && previousStatus != ProductStatus.APPROVED;
+    }
+
+    public boolean leftCatalog() {
+        return previousStatus == ProductStatus.APPROVED && newStatus != ProductStatus.APPROVED;
+    }
+}
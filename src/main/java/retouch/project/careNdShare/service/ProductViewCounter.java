@@ -0,0 +1,126 @@
+package retouch.project.careNdShare.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import retouch.project.careNdShare.dto.ProductSummaryDTO;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory product view counting with write-behind.
+ *
+ * A view is a LongAdder increment, so concurrent views of one product never contend on a lock
+ * or touch the database. A scheduled flush adds the accumulated deltas to products.view_count
+ * in one JDBC batch and folds them into exponentially decayed trending scores.
+ */
+@Service
+public class ProductViewCounter {
+
+    public static final int MAX_TRENDING = 50;
+
+    // Scores below this are dropped so idle products don't stay in the map forever
+    private static final double MIN_SCORE = 0.01;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @Value("${app.product-views.flush-interval-ms:10000}")
+    private long flushIntervalMs;
+
+    @Value("${app.product-views.trending-half-life-minutes:60}")
+    private long trendingHalfLifeMinutes;
+
+    private final ConcurrentHashMap<Long, LongAdder> pending = new ConcurrentHashMap<>();
+
+    // Written only by the (single) flush; readers see a consistent-enough view for ranking
+    private final ConcurrentHashMap<Long, Double> trendingScores = new ConcurrentHashMap<>();
+
+    public void recordView(Long productId) {
+        pending.computeIfAbsent(productId, id -> new LongAdder()).increment();
+    }
+
+    @Scheduled(fixedDelayString = "${app.product-views.flush-interval-ms:10000}")
+    public synchronized void flush() {
+        List<Object[]> batch = new ArrayList<>();
+        for (Map.Entry<Long, LongAdder> entry : pending.entrySet()) {
+            long delta = entry.getValue().sumThenReset();
+            if (delta > 0) {
+                batch.add(new Object[]{delta, entry.getKey()});
+            }
+        }
+
+        decayTrendingScores();
+        for (Object[] row : batch) {
+            trendingScores.merge((Long) row[1], ((Long) row[0]).doubleValue(), Double::sum);
+        }
+
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate("UPDATE products SET view_count = view_count + ? WHERE id = ?", batch);
+        } catch (Exception e) {
+            // Put the deltas back so the next flush retries them
+            for (Object[] row : batch) {
+                pending.computeIfAbsent((Long) row[1], id -> new LongAdder()).add((Long) row[0]);
+            }
+            System.err.println("Failed to flush product view counts: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Approved products with the highest decayed view scores, best first
+     */
+    public List<ProductSummaryDTO> trending(int limit) {
+        int k = Math.max(1, Math.min(limit, MAX_TRENDING));
+        CatalogSnapshot catalog = productCatalogCache.current();
+
+        // Min-heap of the best k seen so far
+        PriorityQueue<Map.Entry<Long, Double>> top = new PriorityQueue<>(Map.Entry.comparingByValue());
+        for (Map.Entry<Long, Double> entry : trendingScores.entrySet()) {
+            if (catalog.get(entry.getKey()).isEmpty()) {
+                continue;
+            }
+            top.offer(Map.entry(entry.getKey(), entry.getValue()));
+            if (top.size() > k) {
+                top.poll();
+            }
+        }
+
+        List<Map.Entry<Long, Double>> ranked = new ArrayList<>(top);
+        ranked.sort(Map.Entry.<Long, Double>comparingByValue(Comparator.reverseOrder()));
+
+        List<ProductSummaryDTO> products = new ArrayList<>(ranked.size());
+        for (Map.Entry<Long, Double> entry : ranked) {
+            Optional<ProductSummaryDTO> product = catalog.get(entry.getKey());
+            product.ifPresent(products::add);
+        }
+        return products;
+    }
+
+    // score(t + interval) = score(t) * 0.5^(interval / halfLife)
+    private void decayTrendingScores() {
+        double factor = Math.pow(0.5, (double) flushIntervalMs / (trendingHalfLifeMinutes * 60_000));
+        trendingScores.replaceAll((id, score) -> score * factor);
+        trendingScores.values().removeIf(score -> score < MIN_SCORE);
+    }
+}
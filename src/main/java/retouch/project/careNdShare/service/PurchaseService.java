@@ -12,12 +12,16 @@ import retouch.project.careNdShare.repository.PurchaseRepository;
 import retouch.project.careNdShare.repository.ProductRepository;
 import retouch.project.careNdShare.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 @Service
 public class PurchaseService {
@@ -34,6 +38,12 @@ public class PurchaseService {
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private JsonStreamingService jsonStreamingService;
+
     @Transactional
     public PurchaseResponseDto createPurchase(PurchaseRequestDto purchaseRequestDTO, String buyerEmail) {
         try {
@@ -80,8 +90,12 @@ public class PurchaseService {
 
             // MARK PRODUCT AS SOLD IMMEDIATELY - regardless of payment method
             product.setStatus(ProductStatus.SOLD);
+            product.setUpdatedAt(LocalDateTime.now());
             productRepository.save(product);
 
+            // Catalog caches are updated once the purchase commits
+            eventPublisher.publishEvent(new ProductStatusChangedEvent(product.getId(), ProductStatus.APPROVED, ProductStatus.SOLD));
+
             // Send notification to seller (non-blocking)
             sendNotificationToSeller(product.getUser(), savedPurchase);
 
@@ -122,6 +136,19 @@ public class PurchaseService {
         return purchaseRepository.findByBuyerOrderByCreatedAtDesc(buyerOpt.get());
     }
 
+    // Streaming variants of the two listings above: written row by row, constant memory
+    public StreamingResponseBody streamPurchasesByBuyer(String buyerEmail) {
+        User buyer = userRepository.findByEmail(buyerEmail)
+                .orElseThrow(() -> new RuntimeException("Buyer not found"));
+        return jsonStreamingService.jsonArray(() -> purchaseRepository.streamByBuyerId(buyer.getId()), Function.identity());
+    }
+
+    public StreamingResponseBody streamSalesBySeller(String sellerEmail) {
+        User seller = userRepository.findByEmail(sellerEmail)
+                .orElseThrow(() -> new RuntimeException("Seller not found"));
+        return jsonStreamingService.jsonArray(() -> purchaseRepository.streamBySellerId(seller.getId()), Function.identity());
+    }
+
     public List<PurchaseRequest> getSalesBySeller(String sellerEmail) {
         Optional<User> sellerOpt = userRepository.findByEmail(sellerEmail);
         if (sellerOpt.isEmpty()) {
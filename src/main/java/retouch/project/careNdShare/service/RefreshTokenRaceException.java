@@ -0,0 +1,12 @@
+package retouch.project.careNdShare.service;
+
+/**
+ * Thrown when a refresh token was rotated by a concurrent request moments ago; answered with 409 so
+ * the client retries with the successor the other request set
+ */
+public class RefreshTokenRaceException extends RuntimeException {
+
+    public RefreshTokenRaceException() {
+        super("Refresh token was just rotated by another request; retry");
+    }
+}
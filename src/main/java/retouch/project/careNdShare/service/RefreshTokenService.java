@@ -0,0 +1,153 @@
+package retouch.project.careNdShare.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import retouch.project.careNdShare.entity.RefreshToken;
+import retouch.project.careNdShare.entity.User;
+import retouch.project.careNdShare.repository.RefreshTokenRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Long-lived refresh tokens that mint short-lived access tokens without a password check.
+ *
+ * Each login starts a token family. Every refresh consumes the presented token and issues its
+ * successor in the same family; presenting a consumed token again means it was copied, so the
+ * whole family is revoked and both holders have to log in again. A request racing its own
+ * rotation (two tabs refreshing at once) is tolerated for a few seconds: it gets nothing but a
+ * {@link RefreshTokenRaceException}, so the client retries with the successor the winning request
+ * set. A consumed token never mints another access token.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final int TOKEN_BYTES = 32;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Value("${app.auth.refresh.ttl-days:14}")
+    private long ttlDays;
+
+    @Value("${app.auth.refresh.reuse-grace-seconds:10}")
+    private long reuseGraceSeconds;
+
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Start a new family for a fresh login and return its first token
+     */
+    public String issue(User user) {
+        return create(user, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Exchange a refresh token for its successor. Throws if the token is unknown, expired or revoked,
+     * or if it was already used (which also revokes its family, unless it was used within the grace
+     * period, which throws {@link RefreshTokenRaceException} instead).
+     */
+    public Rotation rotate(String presented) {
+        if (presented == null || presented.isEmpty()) {
+            throw new RuntimeException("Refresh token is missing");
+        }
+        RefreshToken token = refreshTokenRepository.findByTokenHash(hash(presented))
+                .orElseThrow(() -> new RuntimeException("Invalid refresh token"));
+        LocalDateTime now = LocalDateTime.now();
+        if (token.isRevoked() || !token.getExpiresAt().isAfter(now)) {
+            throw new RuntimeException("Refresh token has expired");
+        }
+
+        if (token.getUsedAt() == null && refreshTokenRepository.markUsed(token.getId(), now) == 1) {
+            return new Rotation(token.getUser(), create(token.getUser(), token.getFamilyId()));
+        }
+
+        // Already consumed: either a concurrent refresh from the same client or a replayed copy
+        List<Object[]> usage = refreshTokenRepository.findUsageById(token.getId());
+        LocalDateTime usedAt = usage.isEmpty() ? null : (LocalDateTime) usage.get(0)[0];
+        boolean revoked = usage.isEmpty() || (Boolean) usage.get(0)[1];
+        if (!revoked && usedAt != null && usedAt.plusSeconds(reuseGraceSeconds).isAfter(now)) {
+            throw new RefreshTokenRaceException();
+        }
+
+        refreshTokenRepository.revokeFamily(token.getFamilyId());
+        System.err.println("Refresh token reuse detected, revoked token family " + token.getFamilyId()
+                + " of user " + token.getUser().getId());
+        throw new RuntimeException("Refresh token has already been used");
+    }
+
+    /**
+     * Revoke the family of a presented token (logout); unknown tokens are ignored
+     */
+    public void revoke(String presented) {
+        if (presented == null || presented.isEmpty()) {
+            return;
+        }
+        refreshTokenRepository.findByTokenHash(hash(presented))
+                .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId()));
+    }
+
+    public void revokeAllForUser(Long userId) {
+        refreshTokenRepository.revokeAllForUser(userId);
+    }
+
+    public void deleteAllForUser(Long userId) {
+        refreshTokenRepository.deleteByUserId(userId);
+    }
+
+    // Revoked and consumed rows are kept until expiry so reuse is still recognised
+    @Scheduled(cron = "${app.auth.refresh.purge-cron:0 30 3 * * *}")
+    public void purgeExpired() {
+        int purged = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        if (purged > 0) {
+            System.out.println("Purged " + purged + " expired refresh tokens");
+        }
+    }
+
+    public long getTtlSeconds() {
+        return ttlDays * 24 * 60 * 60;
+    }
+
+    private String create(User user, String familyId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String value = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        refreshTokenRepository.save(new RefreshToken(hash(value), familyId, user,
+                LocalDateTime.now().plusDays(ttlDays)));
+        return value;
+    }
+
+    private static String hash(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Outcome of a refresh: the user, and the successor token
+     */
+    public static final class Rotation {
+        private final User user;
+        private final String refreshToken;
+
+        private Rotation(User user, String refreshToken) {
+            this.user = user;
+            this.refreshToken = refreshToken;
+        }
+
+        public User getUser() { return user; }
+        public String getRefreshToken() { return refreshToken; }
+    }
+}
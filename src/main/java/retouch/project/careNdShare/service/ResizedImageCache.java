@@ -0,0 +1,237 @@
+package retouch.project.careNdShare.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Images resized to a requested width on first use, kept in a local LRU disk cache.
+ *
+ * Widths are snapped to a few fixed sizes so the number of variants per image stays small. The
+ * cache evicts least recently used files once it holds more than its byte budget, and rebuilds its
+ * index from the directory on startup. Concurrent requests for the same image and width are
+ * coalesced: one resizes, the others wait for its file.
+ */
+@Service
+public class ResizedImageCache {
+
+    // Allowed output widths; requests are rounded up to the next one
+    public static final List<Integer> WIDTHS = List.of(160, 320, 640, 1024, 1600);
+
+    @Autowired
+    private ImageStorageService imageStorageService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.images.resize-cache.dir:uploads/.cache/resized/}")
+    private String cacheDir;
+
+    @Value("${app.images.resize-cache.max-bytes:536870912}")
+    private long maxBytes;
+
+    @Value("${app.images.resize.max-concurrent:2}")
+    private int maxConcurrent;
+
+    private Path root;
+
+    // key -> file size, in access order (least recently used first); guarded by itself
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    private final ConcurrentHashMap<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+    private Semaphore resizePermits;
+
+    private Counter hits;
+    private Counter misses;
+    private Counter coalesced;
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(cacheDir).toAbsolutePath().normalize();
+        Files.createDirectories(root);
+        resizePermits = new Semaphore(Math.max(1, maxConcurrent));
+
+        // Rebuild the index oldest-first so the budget (and LRU order, roughly) survives restarts
+        try (Stream<Path> files = Files.list(root)) {
+            List<Path> existing = files.filter(Files::isRegularFile).collect(Collectors.toList());
+            existing.sort(Comparator.comparing(ResizedImageCache::lastModified));
+            for (Path file : existing) {
+                if (file.getFileName().toString().endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                } else {
+                    record(file.getFileName().toString(), Files.size(file));
+                }
+            }
+        }
+
+        hits = meterRegistry.counter("image.resize.cache", "result", "hit");
+        misses = meterRegistry.counter("image.resize.cache", "result", "miss");
+        coalesced = meterRegistry.counter("image.resize.cache", "result", "coalesced");
+        Gauge.builder("image.resize.cache.bytes", this, cache -> cache.totalBytes()).register(meterRegistry);
+    }
+
+    public static int snapWidth(int requested) {
+        for (int width : WIDTHS) {
+            if (requested <= width) {
+                return width;
+            }
+        }
+        return WIDTHS.get(WIDTHS.size() - 1);
+    }
+
+    /**
+     * Identifies the resized image; changes whenever the product's image does (upload paths are content-addressed)
+     */
+    public static String cacheKey(String imagePath, int width) {
+        byte[] digest = ImageStorageService.sha256().digest(imagePath.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest, 0, 20) + "-w" + width + ".jpg";
+    }
+
+    /**
+     * The cached file for imagePath at the given (snapped) width, resizing from sourcePath on a miss.
+     * sourcePath may be a larger rendition of imagePath, which is cheaper to decode than the original.
+     */
+    public Path get(String imagePath, String sourcePath, int width) throws IOException {
+        String key = cacheKey(imagePath, width);
+        Path file = root.resolve(key);
+        if (isCached(key, file)) {
+            hits.increment();
+            return file;
+        }
+
+        CompletableFuture<Path> load = new CompletableFuture<>();
+        CompletableFuture<Path> pending = inFlight.putIfAbsent(key, load);
+        if (pending != null) {
+            coalesced.increment();
+            return await(pending);
+        }
+
+        try {
+            // Another request may have finished this resize between our lookup and claiming it
+            if (!isCached(key, file)) {
+                misses.increment();
+                resize(sourcePath, width, file);
+                record(key, Files.size(file));
+            }
+            load.complete(file);
+            return file;
+        } catch (IOException | RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, load);
+        }
+    }
+
+    public long totalBytes() {
+        synchronized (index) {
+            return totalBytes;
+        }
+    }
+
+    private boolean isCached(String key, Path file) {
+        synchronized (index) {
+            // get() also moves the entry to the most recently used end
+            if (index.get(key) == null) {
+                return false;
+            }
+        }
+        return Files.exists(file);
+    }
+
+    private void resize(String sourcePath, int width, Path target) throws IOException {
+        try {
+            resizePermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to resize image", e);
+        }
+        try {
+            BufferedImage source;
+            try (InputStream input = imageStorageService.open(sourcePath)) {
+                source = ImageIO.read(input);
+            }
+            if (source == null) {
+                throw new IllegalArgumentException("Image format can't be resized");
+            }
+            // scaleToFit bounds the long side; pick the bound that gives the requested width (never upscaling)
+            double scale = Math.min(1.0, (double) width / source.getWidth());
+            int longSide = (int) Math.round(Math.max(source.getWidth(), source.getHeight()) * scale);
+            ImageRenditionService.writeJpeg(ImageRenditionService.scaleToFit(source, Math.max(1, longSide)), target);
+        } finally {
+            resizePermits.release();
+        }
+    }
+
+    private void record(String key, long size) {
+        synchronized (index) {
+            Long previous = index.put(key, size);
+            totalBytes += size - (previous != null ? previous : 0);
+
+            // Evict least recently used files, but always keep the one just added
+            Iterator<Map.Entry<String, Long>> eldest = index.entrySet().iterator();
+            while (totalBytes > maxBytes && index.size() > 1 && eldest.hasNext()) {
+                Map.Entry<String, Long> entry = eldest.next();
+                if (entry.getKey().equals(key)) {
+                    continue;
+                }
+                eldest.remove();
+                totalBytes -= entry.getValue();
+                try {
+                    Files.deleteIfExists(root.resolve(entry.getKey()));
+                } catch (IOException e) {
+                    System.err.println("Failed to evict resized image " + entry.getKey() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Path await(CompletableFuture<Path> pending) throws IOException {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package retouch.project.careNdShare.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import retouch.project.careNdShare.repository.ExchangeRequestRepository;
+import retouch.project.careNdShare.repository.ProductRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Online migration of existing uploads into the sharded, content-addressed layout.
+ *
+ * Works through products and exchange requests in id-ordered batches. For each image the new
+ * file (and its renditions) is put in place first, then the row is rewritten, and only then is
+ * the old file deleted once nothing references it - so every URL in the database points at an
+ * existing file at all times and the site keeps serving images during the migration.
+ */
+@Service
+public class StorageMigrationService {
+
+    public static final int DEFAULT_BATCH_SIZE = 200;
+
+    // Pause between batches so the migration doesn't starve regular traffic
+    private static final long BATCH_PAUSE_MS = 100;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ExchangeRequestRepository exchangeRequestRepository;
+
+    @Autowired
+    private ImageStorageService imageStorageService;
+
+    @Autowired
+    private ImageRenditionService imageRenditionService;
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @Autowired
+    private ProductDetailCache productDetailCache;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong migrated = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+
+    /**
+     * Start the migration on a background thread; returns false if one is already running
+     */
+    public boolean start(int batchSize) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        migrated.set(0);
+        skipped.set(0);
+        failed.set(0);
+        startedAt = LocalDateTime.now();
+        finishedAt = null;
+
+        int size = Math.max(1, Math.min(batchSize, 1000));
+        Thread worker = new Thread(() -> {
+            try {
+                migrateProducts(size);
+                migrateExchangeRequests(size);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                System.err.println("Upload migration stopped: " + e.getMessage());
+            } finally {
+                finishedAt = LocalDateTime.now();
+                running.set(false);
+                System.out.println("Upload migration finished: " + migrated.get() + " migrated, "
+                        + skipped.get() + " skipped, " + failed.get() + " failed");
+            }
+        }, "upload-migration");
+        worker.setDaemon(true);
+        worker.start();
+        return true;
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", running.get());
+        status.put("migrated", migrated.get());
+        status.put("skipped", skipped.get());
+        status.put("failed", failed.get());
+        status.put("startedAt", startedAt);
+        status.put("finishedAt", finishedAt);
+        return status;
+    }
+
+    private void migrateProducts(int batchSize) throws InterruptedException {
+        long afterId = 0;
+        List<Object[]> batch;
+        while (!(batch = productRepository.findUnshardedImages(afterId, Pageable.ofSize(batchSize))).isEmpty()) {
+            for (Object[] row : batch) {
+                Long id = (Long) row[0];
+                afterId = id;
+                migrateImage((String) row[1], (String) row[2], (String) row[3], moved -> {
+                    int updated = productRepository.moveImage(id, (String) row[1], moved.imagePath,
+                            moved.thumbnailPath, moved.mediumPath, LocalDateTime.now());
+                    if (updated > 0) {
+                        productCatalogCache.reload(id);
+                        productDetailCache.invalidate(id);
+                        if (moved.thumbnailPath == null) {
+                            imageRenditionService.scheduleProductRenditions(id, moved.imagePath);
+                        }
+                    }
+                    return updated > 0;
+                });
+            }
+            Thread.sleep(BATCH_PAUSE_MS);
+        }
+    }
+
+    private void migrateExchangeRequests(int batchSize) throws InterruptedException {
+        long afterId = 0;
+        List<Object[]> batch;
+        while (!(batch = exchangeRequestRepository.findUnshardedImages(afterId, Pageable.ofSize(batchSize))).isEmpty()) {
+            for (Object[] row : batch) {
+                Long id = (Long) row[0];
+                afterId = id;
+                migrateImage((String) row[1], (String) row[2], (String) row[3], moved -> {
+                    int updated = exchangeRequestRepository.moveImage(id, (String) row[1], moved.imagePath,
+                            moved.thumbnailPath, moved.mediumPath);
+                    if (updated > 0 && moved.thumbnailPath == null) {
+                        imageRenditionService.scheduleExchangeRenditions(id, moved.imagePath);
+                    }
+                    return updated > 0;
+                });
+            }
+            Thread.sleep(BATCH_PAUSE_MS);
+        }
+    }
+
+    private void migrateImage(String imagePath, String thumbnailPath, String mediumPath, RowUpdate rowUpdate) {
+        try {
+            Path oldFile = ImageStorageService.toFile(imagePath);
+            if (!Files.exists(oldFile)) {
+                skipped.incrementAndGet();
+                return;
+            }
+
+            // 1. Put the file in its sharded location
+            String hash = ImageStorageService.hashOf(imagePath);
+            String newPath;
+            if (hash != null) {
+                // Already content-addressed (flat layout): same blob, same reference count, just a new place
+                newPath = ImageStorageService.shardedPath(hash, imagePath.substring(imagePath.lastIndexOf('.') + 1));
+                copyIfAbsent(oldFile, newPath);
+            } else {
+                // Legacy UUID-named upload: becomes a (possibly deduplicated) blob with one more reference
+                try (InputStream input = Files.newInputStream(oldFile)) {
+                    newPath = imageStorageService.store(input, oldFile.getFileName().toString(),
+                            Files.probeContentType(oldFile));
+                }
+            }
+            MovedImage moved = new MovedImage(newPath,
+                    copyRendition(thumbnailPath, newPath, "thumb"),
+                    copyRendition(mediumPath, newPath, "medium"));
+
+            // 2. Point the row at it
+            if (!rowUpdate.apply(moved)) {
+                // The row changed under us; give back the reference we took
+                if (hash == null) {
+                    imageStorageService.release(newPath);
+                }
+                skipped.incrementAndGet();
+                return;
+            }
+
+            // 3. Delete the old files once no row references them
+            if (productRepository.countByImagePath(imagePath) == 0
+                    && exchangeRequestRepository.countByExchangeItemImage(imagePath) == 0) {
+                Files.deleteIfExists(oldFile);
+                deleteIfPresent(thumbnailPath);
+                deleteIfPresent(mediumPath);
+            }
+            migrated.incrementAndGet();
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            System.err.println("Failed to migrate " + imagePath + ": " + e.getMessage());
+        }
+    }
+
+    // Copy an existing rendition next to the migrated image; null if there was none (it will be regenerated)
+    private String copyRendition(String renditionPath, String newImagePath, String suffix) throws IOException {
+        if (renditionPath == null || !Files.exists(ImageStorageService.toFile(renditionPath))) {
+            return null;
+        }
+        String newRenditionPath = ImageRenditionService.renditionPath(newImagePath, suffix);
+        copyIfAbsent(ImageStorageService.toFile(renditionPath), newRenditionPath);
+        return newRenditionPath;
+    }
+
+    // Old files are always on local disk; the new location is in whichever blob store is configured
+    private void copyIfAbsent(Path source, String targetPath) throws IOException {
+        if (imageStorageService.exists(targetPath)) {
+            return;
+        }
+        imageStorageService.put(targetPath, source, Files.probeContentType(source));
+    }
+
+    private static void deleteIfPresent(String publicPath) throws IOException {
+        if (publicPath != null) {
+            Files.deleteIfExists(ImageStorageService.toFile(publicPath));
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowUpdate {
+        boolean apply(MovedImage moved);
+    }
+
+    private static final class MovedImage {
+        private final String imagePath;
+        private final String thumbnailPath;
+        private final String mediumPath;
+
+        private MovedImage(String imagePath, String thumbnailPath, String mediumPath) {
+            this.imagePath = imagePath;
+            this.thumbnailPath = thumbnailPath;
+            this.mediumPath = mediumPath;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package retouch.project.careNdShare.service;
+
+/**
+ * Thrown when a user already has the maximum number of open upload sessions; answered with 429
+ */
+public class TooManyUploadsException extends RuntimeException {
+
+    public TooManyUploadsException(int limit) {
+        super("Too many uploads in progress (at most " + limit + "); finish or cancel one first");
+    }
+}
@@ -0,0 +1,265 @@
+package retouch.project.careNdShare.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streaming, resumable image uploads.
+ *
+ * A client opens a session, then sends the raw image bytes in one or more chunks (each tagged
+ * with its byte range). Chunks are appended straight to a temp file in the upload store and
+ * hashed as they arrive, so nothing is buffered in memory or copied twice; the first bytes are
+ * checked against the supported image formats before anything else is written. If a connection
+ * drops, the bytes received so far are kept and the client resumes from the session's offset.
+ *
+ * A completed upload is stored content-addressed and waits (as an uploadId) until a product
+ * listing claims it. Sessions that receive no bytes for longer than the TTL are discarded, and each
+ * user may only hold a few open sessions at a time, since every one of them keeps a temp file.
+ *
+ * Session state lives in this node's memory and its temp file on this node's disk, so an upload
+ * can only be resumed (and claimed) on the node that started it; behind a load balancer,
+ * /api/uploads and /api/products/add need sticky sessions.
+ */
+@Service
+public class UploadSessionService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private ImageStorageService imageStorageService;
+
+    @Value("${app.uploads.max-bytes:10485760}")
+    private long maxBytes;
+
+    @Value("${app.uploads.session-ttl-minutes:60}")
+    private long sessionTtlMinutes;
+
+    @Value("${app.uploads.max-sessions-per-user:5}")
+    private int maxSessionsPerUser;
+
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    // Owner id -> number of sessions in the map, kept in step with it by start() and close()
+    private final ConcurrentHashMap<Long, Integer> openSessions = new ConcurrentHashMap<>();
+
+    public static class UploadSession {
+        private final String id;
+        private final Long ownerId;
+        private final Path temp;
+        private final MessageDigest digest = ImageStorageService.sha256();
+        private Long size;
+        private long offset;
+        private ImageType type;
+        private String imagePath;
+        private volatile long lastActivity = System.currentTimeMillis();
+
+        UploadSession(String id, Long ownerId, Path temp, Long size) {
+            this.id = id;
+            this.ownerId = ownerId;
+            this.temp = temp;
+            this.size = size;
+        }
+
+        public String getId() { return id; }
+        public synchronized Long getSize() { return size; }
+        public synchronized long getOffset() { return offset; }
+        public synchronized boolean isComplete() { return imagePath != null; }
+    }
+
+    /**
+     * Open a session; size is the total number of bytes if the client knows it up front
+     *
+     * @throws TooManyUploadsException if the user already has the maximum number of open sessions
+     */
+    public UploadSession start(Long ownerId, Long size) throws IOException {
+        if (size != null && (size <= 0 || size > maxBytes)) {
+            throw new IllegalArgumentException("Image must be between 1 byte and " + maxBytes + " bytes");
+        }
+        openSessions.compute(ownerId, (id, open) -> {
+            if (open != null && open >= maxSessionsPerUser) {
+                throw new TooManyUploadsException(maxSessionsPerUser);
+            }
+            return open == null ? 1 : open + 1;
+        });
+
+        Path temp;
+        try {
+            temp = imageStorageService.newTempFile();
+        } catch (IOException | RuntimeException e) {
+            releaseSlot(ownerId);
+            throw e;
+        }
+        UploadSession session = new UploadSession(UUID.randomUUID().toString(), ownerId, temp, size);
+        sessions.put(session.id, session);
+        return session;
+    }
+
+    public UploadSession status(String uploadId, Long ownerId) {
+        return find(uploadId, ownerId);
+    }
+
+    /**
+     * Append a chunk starting at the given offset. total is the full upload size from the chunk's
+     * Content-Range (null if unknown); without a range (start == null) the body is the whole
+     * upload and the session completes when it ends.
+     *
+     * @throws IllegalStateException if start isn't the session's current offset (the client should resume from there)
+     */
+    public UploadSession append(String uploadId, Long ownerId, Long start, Long total, InputStream body)
+            throws IOException {
+        UploadSession session = find(uploadId, ownerId);
+        synchronized (session) {
+            if (session.imagePath != null) {
+                throw new IllegalStateException("Upload is already complete");
+            }
+            long expected = start != null ? start : 0;
+            if (expected != session.offset) {
+                throw new IllegalStateException("Expected bytes from offset " + session.offset);
+            }
+            if (total != null) {
+                if (session.size != null && !session.size.equals(total)) {
+                    throw new IllegalArgumentException("Upload size does not match the size it was started with");
+                }
+                if (total <= 0 || total > maxBytes) {
+                    throw new IllegalArgumentException("Image must be between 1 byte and " + maxBytes + " bytes");
+                }
+                session.size = total;
+            }
+
+            long limit = session.size != null ? session.size : maxBytes;
+            byte[] head = null;
+            if (session.type == null) {
+                // Reject anything that isn't an image before the temp file is even created
+                head = body.readNBytes(ImageType.SNIFF_LENGTH);
+                try {
+                    session.type = ImageStorageService.requireImage(head, head.length);
+                } catch (IllegalArgumentException e) {
+                    discard(session);
+                    throw e;
+                }
+            }
+            try (FileChannel out = FileChannel.open(session.temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                if (head != null) {
+                    write(session, out, head, head.length, limit);
+                }
+
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = body.read(buffer)) != -1) {
+                    write(session, out, buffer, read, limit);
+                }
+            }
+
+            if (start == null && session.size == null) {
+                session.size = session.offset;
+            }
+            if (session.size != null && session.offset == session.size) {
+                try {
+                    session.imagePath = imageStorageService.storeImage(session.temp, session.type, session.digest);
+                } catch (IOException | RuntimeException e) {
+                    discard(session);
+                    throw e;
+                }
+            }
+            session.lastActivity = System.currentTimeMillis();
+            return session;
+        }
+    }
+
+    // Bytes already written stay written, so a dropped connection only loses the chunk's unsent tail
+    private static void write(UploadSession session, FileChannel out, byte[] bytes, int length, long limit)
+            throws IOException {
+        if (session.offset + length > limit) {
+            throw new IllegalArgumentException("Upload is larger than " + limit + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        session.digest.update(bytes, 0, length);
+        session.offset += length;
+        session.lastActivity = System.currentTimeMillis();
+    }
+
+    /**
+     * Take ownership of a completed upload's stored image path; the session is closed
+     */
+    public String claim(String uploadId, Long ownerId) {
+        UploadSession session = find(uploadId, ownerId);
+        synchronized (session) {
+            if (session.imagePath == null) {
+                throw new IllegalStateException("Upload is not complete");
+            }
+            if (sessions.remove(session.id, session)) {
+                releaseSlot(session.ownerId);
+            }
+            return session.imagePath;
+        }
+    }
+
+    public void abort(String uploadId, Long ownerId) {
+        UploadSession session = find(uploadId, ownerId);
+        synchronized (session) {
+            discard(session);
+        }
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void expireSessions() {
+        long cutoff = System.currentTimeMillis() - Duration.ofMinutes(sessionTtlMinutes).toMillis();
+        for (UploadSession session : sessions.values()) {
+            if (session.lastActivity < cutoff) {
+                synchronized (session) {
+                    if (session.lastActivity < cutoff) {
+                        discard(session);
+                    }
+                }
+            }
+        }
+    }
+
+    // Caller holds the session's lock
+    private void discard(UploadSession session) {
+        if (!sessions.remove(session.id, session)) {
+            return;
+        }
+        releaseSlot(session.ownerId);
+        if (session.imagePath != null) {
+            imageStorageService.release(session.imagePath);
+            return;
+        }
+        try {
+            Files.deleteIfExists(session.temp);
+        } catch (IOException e) {
+            System.err.println("Failed to delete abandoned upload " + session.temp + ": " + e.getMessage());
+        }
+    }
+
+    private void releaseSlot(Long ownerId) {
+        openSessions.computeIfPresent(ownerId, (id, open) -> open > 1 ? open - 1 : null);
+    }
+
+    private UploadSession find(String uploadId, Long ownerId) {
+        UploadSession session = uploadId != null ? sessions.get(uploadId) : null;
+        if (session == null || !session.ownerId.equals(ownerId)) {
+            throw new RuntimeException("Upload not found");
+        }
+        return session;
+    }
+}
@@ -1,17 +1,28 @@
 package retouch.project.careNdShare.service;
 
+import retouch.project.careNdShare.entity.ExchangeRequest;
+import retouch.project.careNdShare.entity.Product;
+import retouch.project.careNdShare.entity.ProductStatus;
 import retouch.project.careNdShare.entity.User;
+import retouch.project.careNdShare.repository.ExchangeRequestRepository;
+import retouch.project.careNdShare.repository.ProductRepository;
+import retouch.project.careNdShare.repository.PurchaseRepository;
 import retouch.project.careNdShare.repository.UserRepository;
+import retouch.project.careNdShare.security.UserDetailsServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class UserService {
@@ -19,8 +30,9 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
+    // BCrypt runs on its own bounded pool, never on the request thread
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
 
     @Value("${app.password-reset.expiration-minutes}")
     private int resetTokenExpirationMinutes;
@@ -28,6 +40,31 @@ public class UserService {
     @Autowired
     private EmailService emailService;
 
+    // Cached principals must not outlive role, password or account changes
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ExchangeRequestRepository exchangeRequestRepository;
+
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+
+    @Autowired
+    private ImageStorageService imageStorageService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
@@ -36,14 +73,41 @@ public class UserService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         user.setAdmin(isAdmin);
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userDetailsService.invalidate(saved.getEmail());
+        return saved;
     }
 
+    /**
+     * Delete a user together with their listings, the exchange requests they made or received and
+     * the purchases they made or received. The images of those rows are released once the deletion
+     * has committed.
+     */
     public void deleteUser(Long userId) {
-        if (!userRepository.existsById(userId)) {
-            throw new RuntimeException("User not found");
-        }
-        userRepository.deleteById(userId);
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        List<String> releasedImages = new ArrayList<>();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (ExchangeRequest request : exchangeRequestRepository.findByRequesterIdOrTargetProductUserId(userId, userId)) {
+                releasedImages.add(request.getExchangeItemImage());
+                exchangeRequestRepository.delete(request);
+            }
+            purchaseRepository.deleteAll(purchaseRepository.findByBuyerIdOrProductUserId(userId, userId));
+            for (Product product : productRepository.findByUserId(userId)) {
+                // A rejected listing gave up its reference when it was rejected
+                if (product.getStatus() != ProductStatus.REJECTED) {
+                    releasedImages.add(product.getImagePath());
+                }
+                productRepository.delete(product);
+                eventPublisher.publishEvent(ProductStatusChangedEvent.deleted(product.getId(), product.getStatus()));
+            }
+            refreshTokenService.deleteAllForUser(userId);
+            userRepository.deleteById(userId);
+        });
+
+        userDetailsService.invalidate(user.getEmail());
+        releasedImages.forEach(imageStorageService::release);
     }
 
     public User getUserById(Long userId) {
@@ -60,38 +124,48 @@ public class UserService {
 
 
 
-    public User registerUser(String email, String password, String firstName, String lastName) {
+    /**
+     * Validates the registration and creates the user once the password has been hashed off-thread.
+     * Throws PasswordHashingBusyException straight away if hashing is saturated.
+     */
+    public CompletableFuture<User> registerUser(String email, String password, String firstName, String lastName) {
         // Validate input
-        if (email == null || email.trim().isEmpty()) {
-            throw new RuntimeException("Email is required");
-        }
-        if (password == null || password.trim().isEmpty()) {
-            throw new RuntimeException("Password is required");
-        }
-        if (firstName == null || firstName.trim().isEmpty()) {
-            throw new RuntimeException("First name is required");
-        }
-        if (lastName == null || lastName.trim().isEmpty()) {
-            throw new RuntimeException("Last name is required");
-        }
+        try {
+            if (email == null || email.trim().isEmpty()) {
+                throw new RuntimeException("Email is required");
+            }
+            if (password == null || password.trim().isEmpty()) {
+                throw new RuntimeException("Password is required");
+            }
+            if (firstName == null || firstName.trim().isEmpty()) {
+                throw new RuntimeException("First name is required");
+            }
+            if (lastName == null || lastName.trim().isEmpty()) {
+                throw new RuntimeException("Last name is required");
+            }
 
-        // Check if email already exists
-        if (userRepository.existsByEmail(email)) {
-            throw new RuntimeException("Email is already registered!");
+            // Check if email already exists (before spending a hash on it)
+            if (userRepository.existsByEmail(email)) {
+                throw new RuntimeException("Email is already registered!");
+            }
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
         }
 
-        try {
-            User user = new User();
-            user.setEmail(email.trim().toLowerCase());
-            user.setPassword(passwordEncoder.encode(password));
-            user.setFirstName(firstName.trim());
-            user.setLastName(lastName.trim());
-            user.setRoles(Arrays.asList("ROLE_USER"));
-
-            return userRepository.save(user);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to register user: " + e.getMessage());
-        }
+        return passwordHashingService.encode(password).thenApply(encodedPassword -> {
+            try {
+                User user = new User();
+                user.setEmail(email.trim().toLowerCase());
+                user.setPassword(encodedPassword);
+                user.setFirstName(firstName.trim());
+                user.setLastName(lastName.trim());
+                user.setRoles(Arrays.asList("ROLE_USER"));
+
+                return userRepository.save(user);
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to register user: " + e.getMessage());
+            }
+        });
     }
 
     public Optional<User> findByEmail(String email) {
@@ -133,27 +207,32 @@ public class UserService {
         return false;
     }
 
-    public void resetPassword(String resetToken, String newPassword) {
+    /**
+     * Sets the new password (hashed off-thread) and consumes the reset token. Throws
+     * PasswordHashingBusyException straight away if hashing is saturated.
+     */
+    public CompletableFuture<Void> resetPassword(String resetToken, String newPassword) {
         Optional<User> userOptional = userRepository.findByResetToken(resetToken);
-        if (userOptional.isPresent()) {
-            User user = userOptional.get();
-
-            if (user.getResetTokenExpiry() != null &&
-                    user.getResetTokenExpiry().isAfter(LocalDateTime.now())) {
+        if (userOptional.isEmpty()) {
+            return CompletableFuture.failedFuture(new RuntimeException("Invalid reset token"));
+        }
+        User user = userOptional.get();
+        if (user.getResetTokenExpiry() == null || !user.getResetTokenExpiry().isAfter(LocalDateTime.now())) {
+            return CompletableFuture.failedFuture(new RuntimeException("Reset token has expired"));
+        }
 
-                // Update password
-                user.setPassword(passwordEncoder.encode(newPassword));
+        return passwordHashingService.encode(newPassword).thenAccept(encodedPassword -> {
+            // Update password
+            user.setPassword(encodedPassword);
 
-                // Clear reset token
-                user.setResetToken(null);
-                user.setResetTokenExpiry(null);
+            // Clear reset token
+            user.setResetToken(null);
+            user.setResetTokenExpiry(null);
 
-                userRepository.save(user);
-            } else {
-                throw new RuntimeException("Reset token has expired");
-            }
-        } else {
-            throw new RuntimeException("Invalid reset token");
-        }
+            userRepository.save(user);
+            userDetailsService.invalidate(user.getEmail());
+            // A password reset signs the user out everywhere
+            refreshTokenService.revokeAllForUser(user.getId());
+        });
     }
 }
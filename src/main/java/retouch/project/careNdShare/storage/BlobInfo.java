@@ -0,0 +1,20 @@
+package retouch.project.careNdShare.storage;
+
+import java.time.Instant;
+
+// One object in a blob store listing
+public class BlobInfo {
+    private final String key;
+    private final long size;
+    private final Instant lastModified;
+
+    public BlobInfo(String key, long size, Instant lastModified) {
+        this.key = key;
+        this.size = size;
+        this.lastModified = lastModified;
+    }
+
+    public String getKey() { return key; }
+    public long getSize() { return size; }
+    public Instant getLastModified() { return lastModified; }
+}
@@ -0,0 +1,58 @@
+package retouch.project.careNdShare.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Where uploaded image bytes live. Keys are relative paths such as "ab/cd/<hash>.jpg"; the public
+ * URL of a key is always "/uploads/<key>", whichever backend holds it.
+ *
+ * Implementations: {@link FileSystemBlobStore} (a local or shared directory) and {@link S3BlobStore}
+ * (any S3-compatible object store). Selected with app.storage.backend, see BlobStoreConfig.
+ */
+public interface BlobStore {
+
+    /**
+     * Store a copy of the file under key, replacing any existing object. The file is left in place.
+     */
+    void put(String key, Path source, String contentType) throws IOException;
+
+    /**
+     * Store a temp file under key and remove the temp file (a rename where the backend allows it).
+     */
+    void move(String key, Path source, String contentType) throws IOException;
+
+    boolean exists(String key) throws IOException;
+
+    /**
+     * @throws java.nio.file.NoSuchFileException if there is no object under key
+     */
+    InputStream open(String key) throws IOException;
+
+    void delete(String key) throws IOException;
+
+    /**
+     * Move an object to another key within the store (e.g. into quarantine)
+     */
+    void rename(String fromKey, String toKey) throws IOException;
+
+    /**
+     * Objects whose keys start with prefix (a "directory" ending in "/", or "" for the root). Only the
+     * objects directly under prefix unless recursive. The stream is lazy and must be closed.
+     */
+    Stream<BlobInfo> list(String prefix, boolean recursive) throws IOException;
+
+    /**
+     * The file backing key, for backends that keep objects on a local file system (served with sendfile)
+     */
+    Optional<Path> localFile(String key);
+
+    /**
+     * A short-lived URL clients can fetch key from directly, for backends that can serve it themselves
+     */
+    Optional<URI> downloadUrl(String key);
+}
@@ -0,0 +1,162 @@
+package retouch.project.careNdShare.storage;
+
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Blobs as objects in an S3-compatible bucket (AWS S3, MinIO, ...). Uploads are streamed from the
+ * staged temp file with PutObject; clients are redirected to presigned GET URLs, so image bytes
+ * never pass through the app. SDK errors surface as IOExceptions like the file-system store's.
+ */
+public class S3BlobStore implements BlobStore, AutoCloseable {
+
+    // Objects never change under a key (content-addressed), so the bucket can let clients keep them
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    private final S3Client s3;
+    private final S3Presigner presigner;
+    private final String bucket;
+    private final String keyPrefix;
+    private final Duration urlTtl;
+
+    public S3BlobStore(S3Client s3, S3Presigner presigner, String bucket, String keyPrefix, Duration urlTtl) {
+        this.s3 = s3;
+        this.presigner = presigner;
+        this.bucket = bucket;
+        this.keyPrefix = keyPrefix;
+        this.urlTtl = urlTtl;
+    }
+
+    @Override
+    public void put(String key, Path source, String contentType) throws IOException {
+        try {
+            s3.putObject(PutObjectRequest.builder()
+                            .bucket(bucket)
+                            .key(objectKey(key))
+                            .contentType(contentType)
+                            .cacheControl(CACHE_CONTROL)
+                            .build(),
+                    RequestBody.fromFile(source));
+        } catch (SdkException e) {
+            throw new IOException("Failed to upload " + key + " to bucket " + bucket, e);
+        }
+    }
+
+    @Override
+    public void move(String key, Path source, String contentType) throws IOException {
+        put(key, source, contentType);
+        Files.deleteIfExists(source);
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        try {
+            s3.headObject(b -> b.bucket(bucket).key(objectKey(key)));
+            return true;
+        } catch (NoSuchKeyException e) {
+            return false;
+        } catch (S3Exception e) {
+            // HEAD responses have no body, so a missing key usually arrives as a bare 404
+            if (e.statusCode() == 404) {
+                return false;
+            }
+            throw new IOException("Failed to look up " + key + " in bucket " + bucket, e);
+        } catch (SdkException e) {
+            throw new IOException("Failed to look up " + key + " in bucket " + bucket, e);
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        try {
+            return s3.getObject(GetObjectRequest.builder().bucket(bucket).key(objectKey(key)).build());
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(key);
+        } catch (SdkException e) {
+            throw new IOException("Failed to read " + key + " from bucket " + bucket, e);
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        try {
+            s3.deleteObject(b -> b.bucket(bucket).key(objectKey(key)));
+        } catch (SdkException e) {
+            throw new IOException("Failed to delete " + key + " from bucket " + bucket, e);
+        }
+    }
+
+    @Override
+    public void rename(String fromKey, String toKey) throws IOException {
+        try {
+            s3.copyObject(b -> b.sourceBucket(bucket).sourceKey(objectKey(fromKey))
+                    .destinationBucket(bucket).destinationKey(objectKey(toKey)));
+            s3.deleteObject(b -> b.bucket(bucket).key(objectKey(fromKey)));
+        } catch (SdkException e) {
+            throw new IOException("Failed to move " + fromKey + " to " + toKey + " in bucket " + bucket, e);
+        }
+    }
+
+    // Pages are fetched lazily as the stream is consumed
+    @Override
+    public Stream<BlobInfo> list(String prefix, boolean recursive) {
+        ListObjectsV2Request.Builder request = ListObjectsV2Request.builder()
+                .bucket(bucket)
+                .prefix(objectKey(prefix));
+        if (!recursive) {
+            request.delimiter("/");
+        }
+        return s3.listObjectsV2Paginator(request.build()).contents().stream()
+                .map(object -> new BlobInfo(object.key().substring(keyPrefix.length()), object.size(),
+                        object.lastModified()));
+    }
+
+    @Override
+    public Optional<Path> localFile(String key) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<URI> downloadUrl(String key) {
+        GetObjectPresignRequest request = GetObjectPresignRequest.builder()
+                .signatureDuration(urlTtl)
+                .getObjectRequest(b -> b.bucket(bucket).key(objectKey(key)))
+                .build();
+        try {
+            return Optional.of(presigner.presignGetObject(request).url().toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("Presigned URL is not a valid URI", e);
+        }
+    }
+
+    public Duration getUrlTtl() { return urlTtl; }
+
+    @Override
+    public void close() {
+        presigner.close();
+        s3.close();
+    }
+
+    private String objectKey(String key) {
+        return keyPrefix + key;
+    }
+}
@@ -0,0 +1,88 @@
+package retouch.project.careNdShare.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import retouch.project.careNdShare.storage.FileSystemBlobStore;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImageControllerTest {
+
+	@TempDir
+	Path root;
+
+	private ImageController controller;
+
+	@BeforeEach
+	void setUp() {
+		controller = new ImageController();
+		ReflectionTestUtils.setField(controller, "blobStore", new FileSystemBlobStore(root.toString()));
+	}
+
+	@Test
+	void servesKeysWithPercentEncodedSpaces() throws Exception {
+		Files.write(root.resolve("0e04abdb_download (1).jpg"), new byte[]{1, 2, 3});
+
+		MockHttpServletResponse response = get("/uploads/0e04abdb_download%20(1).jpg");
+
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getContentAsByteArray()).containsExactly(1, 2, 3);
+	}
+
+	@Test
+	void onlyContentAddressedUploadsAreImmutable() throws Exception {
+		String hash = "ab".repeat(32);
+		Files.createDirectories(root.resolve("ab/ab"));
+		Files.write(root.resolve("ab/ab/" + hash + ".jpg"), new byte[]{1});
+		Files.write(root.resolve("ab/ab/" + hash + ".jpg.thumb.jpg"), new byte[]{2});
+		Files.write(root.resolve("0e04abdb_photo.jpg"), new byte[]{3});
+
+		for (String path : List.of("ab/ab/" + hash + ".jpg", "ab/ab/" + hash + ".jpg.thumb.jpg")) {
+			MockHttpServletResponse response = get("/uploads/" + path);
+			assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).contains("immutable");
+			assertThat(response.getHeader("X-Content-Type-Options")).isEqualTo("nosniff");
+		}
+
+		MockHttpServletResponse legacy = get("/uploads/0e04abdb_photo.jpg");
+		assertThat(legacy.getHeader(HttpHeaders.CACHE_CONTROL)).doesNotContain("immutable").contains("must-revalidate");
+		assertThat(legacy.getHeader("X-Content-Type-Options")).isEqualTo("nosniff");
+		assertThat(get("/uploads/missing.jpg").getHeader("X-Content-Type-Options")).isEqualTo("nosniff");
+	}
+
+	@Test
+	void keepsPlusSignsLiteralInPaths() throws Exception {
+		Files.createDirectories(root.resolve("exchange-items"));
+		Files.write(root.resolve("exchange-items/00cbdba4_ZH+.png"), new byte[]{7});
+
+		MockHttpServletResponse response = get("/uploads/exchange-items/00cbdba4_ZH+.png");
+
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getContentAsByteArray()).containsExactly(7);
+	}
+
+	@Test
+	void rejectsEncodedTraversalAndHiddenEntries() throws Exception {
+		Files.createDirectories(root.resolve(".originals"));
+		Files.write(root.resolve(".originals/secret.jpg"), new byte[]{9});
+
+		assertThat(get("/uploads/%2e%2e/application.properties").getStatus()).isEqualTo(404);
+		assertThat(get("/uploads/%2Eoriginals/secret.jpg").getStatus()).isEqualTo(404);
+		assertThat(get("/uploads/bad%zzname.jpg").getStatus()).isEqualTo(404);
+	}
+
+	private MockHttpServletResponse get(String uri) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		controller.serveUpload(request, response);
+		return response;
+	}
+}
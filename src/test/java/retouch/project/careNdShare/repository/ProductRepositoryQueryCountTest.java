@@ -0,0 +1,96 @@
+package retouch.project.careNdShare.repository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Pageable;
+import retouch.project.careNdShare.dto.ProductDetailDTO;
+import retouch.project.careNdShare.dto.ProductSummaryDTO;
+import retouch.project.careNdShare.entity.Product;
+import retouch.project.careNdShare.entity.ProductStatus;
+import retouch.project.careNdShare.entity.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Catalog reads must stay at one SQL statement per page, seller included
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class ProductRepositoryQueryCountTest {
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		for (int u = 0; u < 3; u++) {
+			User seller = new User("seller" + u + "@example.com", "secret", "Seller" + u, "Test",
+					new ArrayList<>(List.of("ROLE_USER")));
+			entityManager.persist(seller);
+
+			for (int i = 0; i < 10; i++) {
+				Product product = new Product("Item " + u + "-" + i, 100.0 + i, "Electronics", "Resell",
+						"Test item", "/uploads/test.jpg", seller, "Good");
+				product.setStatus(ProductStatus.APPROVED);
+				entityManager.persist(product);
+			}
+		}
+		entityManager.flush();
+		entityManager.clear();
+
+		statistics = entityManager.getEntityManager().getEntityManagerFactory()
+				.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	void catalogPageIsOneQuery() {
+		List<ProductSummaryDTO> page = productRepository.findAvailableNewest(null, null, null, null, Pageable.ofSize(20));
+
+		assertThat(page).hasSize(20);
+		page.forEach(item -> assertThat(item.getUser().getFirstName()).startsWith("Seller"));
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		assertThat(statistics.getEntityLoadCount()).isZero();
+	}
+
+	@Test
+	void followingPageIsOneQuery() {
+		List<ProductSummaryDTO> first = productRepository.findAvailablePriceLow(null, null, null, null, Pageable.ofSize(20));
+		ProductSummaryDTO last = first.get(first.size() - 1);
+		statistics.clear();
+
+		List<ProductSummaryDTO> second = productRepository.findAvailablePriceLow(null, null,
+				last.getPrice(), last.getId(), Pageable.ofSize(20));
+
+		assertThat(second).hasSize(10);
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		assertThat(statistics.getEntityLoadCount()).isZero();
+	}
+
+	@Test
+	void detailIsOneQuery() {
+		Long id = productRepository.findAvailableOldest(null, null, null, null, Pageable.ofSize(1)).get(0).getId();
+		statistics.clear();
+
+		Optional<ProductDetailDTO> detail = productRepository.findApprovedDetailById(id);
+
+		assertThat(detail).isPresent();
+		assertThat(detail.get().getUser().getEmail()).endsWith("@example.com");
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		assertThat(statistics.getEntityLoadCount()).isZero();
+	}
+}
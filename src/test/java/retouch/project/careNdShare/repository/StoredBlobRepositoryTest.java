@@ -0,0 +1,51 @@
+package retouch.project.careNdShare.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import retouch.project.careNdShare.entity.StoredBlob;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Reference counting the orphan sweep relies on
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class StoredBlobRepositoryTest {
+
+	private static final String HASH = "ab".repeat(32);
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private StoredBlobRepository storedBlobRepository;
+
+	@Test
+	void incrementingTouchesTheBlob() {
+		StoredBlob blob = new StoredBlob(HASH, "jpg", 3, "image/jpeg");
+		blob.setLastReferencedAt(LocalDateTime.now().minusDays(2));
+		entityManager.persistAndFlush(blob);
+		LocalDateTime now = LocalDateTime.now();
+
+		assertThat(storedBlobRepository.incrementRefCount(HASH, now)).isEqualTo(1);
+
+		entityManager.clear();
+		StoredBlob reloaded = storedBlobRepository.findById(HASH).orElseThrow();
+		assertThat(reloaded.getRefCount()).isEqualTo(2);
+		assertThat(reloaded.getLastReferencedAt()).isAfterOrEqualTo(now.minusSeconds(1));
+	}
+
+	@Test
+	void onlyUnreferencedBlobsAreDeleted() {
+		entityManager.persistAndFlush(new StoredBlob(HASH, "jpg", 3, "image/jpeg"));
+
+		assertThat(storedBlobRepository.deleteIfUnreferenced(HASH)).isZero();
+		assertThat(storedBlobRepository.existsById(HASH)).isTrue();
+
+		storedBlobRepository.decrementRefCount(HASH);
+		assertThat(storedBlobRepository.deleteIfUnreferenced(HASH)).isEqualTo(1);
+		assertThat(storedBlobRepository.existsById(HASH)).isFalse();
+	}
+}
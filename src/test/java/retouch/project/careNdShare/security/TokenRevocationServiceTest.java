@@ -0,0 +1,146 @@
+package retouch.project.careNdShare.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import retouch.project.careNdShare.entity.RevokedToken;
+import retouch.project.careNdShare.repository.RevokedTokenRepository;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// The jti denylist and how AuthTokenFilter uses it
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class TokenRevocationServiceTest {
+
+	@Autowired
+	private RevokedTokenRepository revokedTokenRepository;
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private TokenRevocationService service;
+
+	@BeforeEach
+	void setUp() {
+		service = service(1000);
+	}
+
+	@AfterEach
+	void clearContext() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void aRevokedTokenIsRejectedByTheFilter() throws Exception {
+		String revoked = UUID.randomUUID().toString();
+		String live = UUID.randomUUID().toString();
+		service.revoke(revoked, inOneHour());
+
+		assertThat(service.isRevoked(revoked)).isTrue();
+		assertThat(service.isRevoked(live)).isFalse();
+		assertThat(revokedTokenRepository.existsById(revoked)).isTrue();
+
+		assertThat(authenticates(revoked)).isFalse();
+		assertThat(authenticates(live)).isTrue();
+	}
+
+	@Test
+	void aBloomFalsePositiveFallsThroughToTheExactSet() {
+		// A filter sized for one entry saturates quickly, so some unrevoked jtis pass it
+		service = service(1);
+		for (int i = 0; i < 200; i++) {
+			service.revoke("revoked-" + i, inOneHour());
+		}
+		Object denylist = ReflectionTestUtils.getField(service, "denylist");
+		TokenRevocationService.BloomFilter bloom =
+				(TokenRevocationService.BloomFilter) ReflectionTestUtils.getField(denylist, "bloom");
+		String falsePositive = null;
+		for (int i = 0; falsePositive == null; i++) {
+			if (bloom.mightContain("live-" + i)) {
+				falsePositive = "live-" + i;
+			}
+		}
+
+		assertThat(service.isRevoked(falsePositive)).isFalse();
+		assertThat(meterRegistry.counter("auth.revocation.check", "result", "false_positive").count()).isEqualTo(1);
+		assertThat(service.isRevoked("revoked-7")).isTrue();
+	}
+
+	@Test
+	void refreshPicksUpRevocationsMadeOnOtherNodes() {
+		String elsewhere = UUID.randomUUID().toString();
+		revokedTokenRepository.save(new RevokedToken(elsewhere, LocalDateTime.now().plusHours(1)));
+		revokedTokenRepository.save(new RevokedToken("expired", LocalDateTime.now().minusMinutes(1)));
+
+		assertThat(service.isRevoked(elsewhere)).isFalse();
+
+		service.refresh();
+
+		assertThat(service.isRevoked(elsewhere)).isTrue();
+		assertThat(revokedTokenRepository.existsById("expired")).isFalse();
+	}
+
+	@Test
+	void refreshKeepsLocalRevocations() {
+		String local = UUID.randomUUID().toString();
+		service.revoke(local, inOneHour());
+		revokedTokenRepository.deleteAll();
+
+		service.refresh();
+
+		assertThat(service.isRevoked(local)).isTrue();
+	}
+
+	private TokenRevocationService service(int expectedEntries) {
+		TokenRevocationService service = new TokenRevocationService();
+		ReflectionTestUtils.setField(service, "revokedTokenRepository", revokedTokenRepository);
+		ReflectionTestUtils.setField(service, "meterRegistry", meterRegistry);
+		ReflectionTestUtils.setField(service, "expectedEntries", expectedEntries);
+		service.init();
+		return service;
+	}
+
+	// Runs a request carrying a token with this jti through the filter
+	private boolean authenticates(String jti) throws Exception {
+		SecurityContextHolder.clearContext();
+		Claims claims = Jwts.claims().setSubject("user@example.com").setId(jti).setIssuedAt(new Date());
+		JwtUtils jwtUtils = mock(JwtUtils.class);
+		when(jwtUtils.getJwtFromRequest(any())).thenReturn("token");
+		when(jwtUtils.parseClaims("token")).thenReturn(claims);
+		when(jwtUtils.toPrincipal(claims)).thenReturn(new UserPrincipal(1L, "user@example.com", "",
+				List.of(new SimpleGrantedAuthority("ROLE_USER")), false));
+
+		AuthTokenFilter filter = new AuthTokenFilter();
+		ReflectionTestUtils.setField(filter, "jwtUtils", jwtUtils);
+		ReflectionTestUtils.setField(filter, "userDetailsService", mock(UserDetailsServiceImpl.class));
+		ReflectionTestUtils.setField(filter, "tokenRevocationService", service);
+		MockFilterChain chain = new MockFilterChain();
+		filter.doFilter(new MockHttpServletRequest("GET", "/api/products"), new MockHttpServletResponse(), chain);
+
+		assertThat(chain.getRequest()).isNotNull();
+		return SecurityContextHolder.getContext().getAuthentication() != null;
+	}
+
+	private static Date inOneHour() {
+		return new Date(System.currentTimeMillis() + 3_600_000);
+	}
+}
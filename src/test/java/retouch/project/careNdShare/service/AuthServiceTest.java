@@ -0,0 +1,73 @@
+package retouch.project.careNdShare.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.LockedException;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+import retouch.project.careNdShare.security.JwtUtils;
+import retouch.project.careNdShare.security.UserDetailsServiceImpl;
+import retouch.project.careNdShare.security.UserPrincipal;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+class AuthServiceTest {
+
+	private final UserDetailsServiceImpl userDetailsService = mock(UserDetailsServiceImpl.class);
+	private final PasswordHashingService passwordHashingService = mock(PasswordHashingService.class);
+	private final JwtUtils jwtUtils = mock(JwtUtils.class);
+	private AuthService authService;
+
+	@BeforeEach
+	void setUp() {
+		authService = new AuthService();
+		ReflectionTestUtils.setField(authService, "userDetailsService", userDetailsService);
+		ReflectionTestUtils.setField(authService, "passwordHashingService", passwordHashingService);
+		ReflectionTestUtils.setField(authService, "jwtUtils", jwtUtils);
+	}
+
+	@Test
+	void issuesATokenForAMatchingPassword() {
+		UserPrincipal user = principal();
+		when(userDetailsService.loadUserByUsername("a@example.com")).thenReturn(user);
+		when(passwordHashingService.matches("secret", "hash")).thenReturn(CompletableFuture.completedFuture(true));
+		when(jwtUtils.generateJwtToken(user)).thenReturn("jwt");
+
+		assertThat(authService.authenticateUser("a@example.com", "secret").join()).isEqualTo("jwt");
+	}
+
+	@Test
+	void rejectsAWrongPassword() {
+		when(userDetailsService.loadUserByUsername("a@example.com")).thenReturn(principal());
+		when(passwordHashingService.matches("wrong", "hash")).thenReturn(CompletableFuture.completedFuture(false));
+
+		assertThatThrownBy(() -> authService.authenticateUser("a@example.com", "wrong").join())
+				.isInstanceOf(CompletionException.class)
+				.hasCauseInstanceOf(BadCredentialsException.class);
+	}
+
+	@Test
+	void rejectsALockedAccountEvenWithTheRightPassword() {
+		UserPrincipal user = spy(principal());
+		when(user.isAccountNonLocked()).thenReturn(false);
+		when(userDetailsService.loadUserByUsername("a@example.com")).thenReturn(user);
+		when(passwordHashingService.matches("secret", "hash")).thenReturn(CompletableFuture.completedFuture(true));
+
+		assertThatThrownBy(() -> authService.authenticateUser("a@example.com", "secret").join())
+				.isInstanceOf(CompletionException.class)
+				.hasCauseInstanceOf(LockedException.class);
+	}
+
+	private static UserPrincipal principal() {
+		return new UserPrincipal(1L, "a@example.com", "hash", List.of(new SimpleGrantedAuthority("ROLE_USER")), false);
+	}
+}
@@ -0,0 +1,118 @@
+package retouch.project.careNdShare.service;
+
+import org.junit.jupiter.api.Test;
+import retouch.project.careNdShare.dto.ProductSort;
+import retouch.project.careNdShare.dto.ProductSummaryDTO;
+import retouch.project.careNdShare.entity.ProductStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogSnapshotTest {
+
+	private static final LocalDateTime START = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+	@Test
+	void withAndWithoutMatchAFreshBuild() {
+		Random random = new Random(42);
+		Map<Long, ProductSummaryDTO> expected = new HashMap<>();
+		List<ProductSummaryDTO> initial = new ArrayList<>();
+		for (long id = 1; id <= 2000; id++) {
+			ProductSummaryDTO product = product(id, random);
+			initial.add(product);
+			expected.put(id, product);
+		}
+		CatalogSnapshot snapshot = CatalogSnapshot.build(1, initial);
+
+		// Enough churn to split and drain chunks in every bucket
+		for (int i = 0; i < 3000; i++) {
+			long id = 1 + random.nextInt(2500);
+			if (random.nextInt(3) == 0) {
+				snapshot = snapshot.without(id);
+				expected.remove(id);
+			} else {
+				ProductSummaryDTO product = product(id, random);
+				snapshot = snapshot.with(product);
+				expected.put(id, product);
+			}
+		}
+
+		CatalogSnapshot rebuilt = CatalogSnapshot.build(1, expected.values());
+		assertThat(snapshot.size()).isEqualTo(expected.size());
+		for (String type : List.of("all", "Resell", "Donate")) {
+			for (String category : List.of("all", "Furniture", "Books", "Toys")) {
+				for (ProductSort sort : ProductSort.values()) {
+					assertThat(ids(snapshot.list(type, category, sort)))
+							.as("%s|%s %s", type, category, sort)
+							.isEqualTo(ids(rebuilt.list(type, category, sort)));
+				}
+			}
+		}
+		for (long id = 1; id <= 2500; id++) {
+			assertThat(snapshot.get(id).orElse(null)).isSameAs(expected.get(id));
+		}
+	}
+
+	@Test
+	void olderVersionsAreUnchanged() {
+		Random random = new Random(7);
+		List<ProductSummaryDTO> initial = new ArrayList<>();
+		for (long id = 1; id <= 1000; id++) {
+			initial.add(product(id, random));
+		}
+		CatalogSnapshot before = CatalogSnapshot.build(1, initial);
+		List<Long> newestBefore = ids(before.list(null, null, ProductSort.NEWEST));
+		ProductSummaryDTO replaced = before.get(500L).orElseThrow();
+
+		CatalogSnapshot after = before.with(product(5000L, random)).without(1L).with(product(500L, random));
+
+		assertThat(ids(before.list(null, null, ProductSort.NEWEST))).isEqualTo(newestBefore);
+		assertThat(before.get(1L)).isPresent();
+		assertThat(before.get(5000L)).isEmpty();
+		assertThat(before.get(500L)).containsSame(replaced);
+		assertThat(before.size()).isEqualTo(1000);
+		assertThat(after.size()).isEqualTo(1000);
+		assertThat(after.getVersion()).isEqualTo(4);
+		assertThat(after.get(1L)).isEmpty();
+		assertThat(after.get(500L).orElseThrow()).isNotSameAs(replaced);
+	}
+
+	@Test
+	void chunkedListSearchFollowsBinarySearchContract() {
+		Comparator<ProductSummaryDTO> byId = Comparator.comparing(ProductSummaryDTO::getId);
+		List<ProductSummaryDTO> evens = new ArrayList<>();
+		for (long id = 0; id < 2000; id += 2) {
+			evens.add(product(id, new Random(id)));
+		}
+		CatalogSnapshot.ChunkedList list = CatalogSnapshot.ChunkedList.of(evens);
+
+		assertThat(list.chunkCount()).isGreaterThan(1);
+		for (long id = -1; id <= 2000; id++) {
+			ProductSummaryDTO key = product(id, new Random(id));
+			assertThat(list.search(key, byId)).as("id %d", id)
+					.isEqualTo(Collections.binarySearch(evens, key, byId));
+		}
+	}
+
+	private static List<Long> ids(List<ProductSummaryDTO> products) {
+		return products.stream().map(ProductSummaryDTO::getId).collect(Collectors.toList());
+	}
+
+	private static ProductSummaryDTO product(long id, Random random) {
+		String type = random.nextBoolean() ? "Resell" : "Donate";
+		String category = List.of("Furniture", "Books", "Toys").get(random.nextInt(3));
+		LocalDateTime createdAt = START.plusMinutes(random.nextInt(500));
+		return new ProductSummaryDTO(id, "Item " + random.nextInt(300), (double) random.nextInt(100), category, type,
+				"", "/uploads/p.jpg", null, null, "Good", ProductStatus.APPROVED, createdAt, createdAt,
+				1L, "Test", "Seller");
+	}
+}
@@ -0,0 +1,107 @@
+package retouch.project.careNdShare.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import retouch.project.careNdShare.repository.StoredBlobRepository;
+import retouch.project.careNdShare.storage.FileSystemBlobStore;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Identical bytes share one blob; each store takes a reference and the files go with the last one
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class ImageStorageServiceTest {
+
+	@TempDir
+	Path root;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private StoredBlobRepository storedBlobRepository;
+
+	private ImageStorageService service;
+
+	@BeforeEach
+	void setUp() {
+		service = new ImageStorageService();
+		ReflectionTestUtils.setField(service, "storedBlobRepository", storedBlobRepository);
+		ReflectionTestUtils.setField(service, "blobStore", new FileSystemBlobStore(root.toString()));
+	}
+
+	@Test
+	void storingTheSameBytesTwiceTakesASecondReference() throws Exception {
+		byte[] bytes = uniqueBytes();
+
+		String first = service.store(new ByteArrayInputStream(bytes), "first.jpg", "image/jpeg");
+		String second = service.store(new ByteArrayInputStream(bytes), "second.jpg", "image/jpeg");
+
+		assertThat(second).isEqualTo(first);
+		assertThat(ImageStorageService.isSharded(first)).isTrue();
+		assertThat(refCount(first)).isEqualTo(2);
+		assertThat(storedBlobRepository.count()).isEqualTo(1);
+		assertThat(Files.readAllBytes(root.resolve(ImageStorageService.keyOf(first)))).isEqualTo(bytes);
+		assertThat(filesIn(root)).isEqualTo(1);
+	}
+
+	@Test
+	void theFileIsDeletedOnlyWhenTheLastReferenceIsReleased() throws Exception {
+		byte[] bytes = uniqueBytes();
+		String path = service.store(new ByteArrayInputStream(bytes), "photo.jpg", "image/jpeg");
+		service.store(new ByteArrayInputStream(bytes), "photo.jpg", "image/jpeg");
+		Path file = root.resolve(ImageStorageService.keyOf(path));
+
+		service.release(path);
+
+		assertThat(file).exists();
+		assertThat(refCount(path)).isEqualTo(1);
+
+		service.release(path);
+
+		assertThat(file).doesNotExist();
+		assertThat(storedBlobRepository.existsById(ImageStorageService.hashOf(path))).isFalse();
+
+		// A further release of the same path is a no-op
+		service.release(path);
+		assertThat(storedBlobRepository.count()).isZero();
+	}
+
+	@Test
+	void differentBytesGetTheirOwnBlobs() throws Exception {
+		String first = service.store(new ByteArrayInputStream(uniqueBytes()), "a.jpg", "image/jpeg");
+		String second = service.store(new ByteArrayInputStream(uniqueBytes()), "b.jpg", "image/jpeg");
+
+		service.release(first);
+
+		assertThat(root.resolve(ImageStorageService.keyOf(first))).doesNotExist();
+		assertThat(root.resolve(ImageStorageService.keyOf(second))).exists();
+		assertThat(refCount(second)).isEqualTo(1);
+	}
+
+	private int refCount(String publicPath) {
+		// The counts are changed by bulk updates, which bypass the persistence context
+		entityManager.clear();
+		return storedBlobRepository.findById(ImageStorageService.hashOf(publicPath)).orElseThrow().getRefCount();
+	}
+
+	private static byte[] uniqueBytes() {
+		return UUID.randomUUID().toString().getBytes();
+	}
+
+	private static long filesIn(Path dir) throws Exception {
+		try (Stream<Path> files = Files.walk(dir)) {
+			return files.filter(Files::isRegularFile).count();
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package retouch.project.careNdShare.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import retouch.project.careNdShare.entity.Product;
+import retouch.project.careNdShare.entity.ProductStatus;
+import retouch.project.careNdShare.entity.StoredBlob;
+import retouch.project.careNdShare.entity.User;
+import retouch.project.careNdShare.repository.ExchangeRequestRepository;
+import retouch.project.careNdShare.repository.ProductRepository;
+import retouch.project.careNdShare.repository.StoredBlobRepository;
+import retouch.project.careNdShare.storage.BlobStore;
+import retouch.project.careNdShare.storage.FileSystemBlobStore;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+// A rejected listing's image outlives the rejection by the grace period, then the sweep reclaims it
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class OrphanImageSweeperTest {
+
+	private static final String REJECTED_HASH = "aa".repeat(32);
+	private static final String APPROVED_HASH = "bb".repeat(32);
+
+	@TempDir
+	Path root;
+
+	@TempDir
+	Path staging;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private ExchangeRequestRepository exchangeRequestRepository;
+
+	@Autowired
+	private StoredBlobRepository storedBlobRepository;
+
+	private ProductService productService;
+	private OrphanImageSweeper sweeper;
+	private Product rejected;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		FileSystemBlobStore blobStore = new FileSystemBlobStore(root.toString());
+		ImageStorageService imageStorageService = new ImageStorageService();
+		ReflectionTestUtils.setField(imageStorageService, "storedBlobRepository", storedBlobRepository);
+		ReflectionTestUtils.setField(imageStorageService, "blobStore", blobStore);
+
+		productService = new ProductService();
+		ReflectionTestUtils.setField(productService, "productRepository", productRepository);
+		ReflectionTestUtils.setField(productService, "imageStorageService", imageStorageService);
+		ReflectionTestUtils.setField(productService, "eventPublisher", mock(ApplicationEventPublisher.class));
+
+		sweeper = new OrphanImageSweeper();
+		ReflectionTestUtils.setField(sweeper, "blobStore", blobStore);
+		ReflectionTestUtils.setField(sweeper, "productRepository", productRepository);
+		ReflectionTestUtils.setField(sweeper, "exchangeRequestRepository", exchangeRequestRepository);
+		ReflectionTestUtils.setField(sweeper, "storedBlobRepository", storedBlobRepository);
+		ReflectionTestUtils.setField(sweeper, "mode", "delete");
+		ReflectionTestUtils.setField(sweeper, "graceHours", 24L);
+		ReflectionTestUtils.setField(sweeper, "quarantineRetentionDays", 30L);
+		ReflectionTestUtils.setField(sweeper, "shardPauseMs", 0L);
+		ReflectionTestUtils.setField(sweeper, "tempDir", staging);
+
+		User seller = new User("seller@example.com", "secret", "Seller", "Test", new ArrayList<>(List.of("ROLE_USER")));
+		entityManager.persist(seller);
+		rejected = listing(seller, REJECTED_HASH, ProductStatus.PENDING);
+		listing(seller, APPROVED_HASH, ProductStatus.APPROVED);
+		entityManager.flush();
+	}
+
+	@Test
+	void rejectedListingsImageIsKeptForTheGracePeriodThenDeleted() throws Exception {
+		productService.rejectProduct(rejected.getId(), "Blurry photo");
+		entityManager.flush();
+		entityManager.clear();
+		assertThat(storedBlobRepository.findById(REJECTED_HASH).orElseThrow().getRefCount()).isZero();
+
+		sweeper.sweep();
+		assertThat(root.resolve(key(REJECTED_HASH))).exists();
+
+		// The grace period has passed since the rejection
+		ReflectionTestUtils.setField(sweeper, "graceHours", 0L);
+		sweeper.sweep();
+
+		assertThat(root.resolve(key(REJECTED_HASH))).doesNotExist();
+		assertThat(root.resolve(key(REJECTED_HASH) + ".thumb.jpg")).doesNotExist();
+		assertThat(storedBlobRepository.existsById(REJECTED_HASH)).isFalse();
+		assertThat(sweeper.status().get("deleted")).isEqualTo(2L);
+
+		assertThat(root.resolve(key(APPROVED_HASH))).exists();
+		assertThat(storedBlobRepository.existsById(APPROVED_HASH)).isTrue();
+	}
+
+	@Test
+	void reapprovingARejectedListingKeepsItsImage() throws Exception {
+		productService.rejectProduct(rejected.getId(), "Blurry photo");
+		productService.approveProduct(rejected.getId());
+		entityManager.flush();
+		entityManager.clear();
+
+		ReflectionTestUtils.setField(sweeper, "graceHours", 0L);
+		sweeper.sweep();
+		entityManager.flush();
+		entityManager.clear();
+
+		assertThat(root.resolve(key(REJECTED_HASH))).exists();
+		assertThat(storedBlobRepository.findById(REJECTED_HASH).orElseThrow().getRefCount()).isEqualTo(1);
+	}
+
+	@Test
+	void staleStagingFilesAreDeletedFromLocalDiskWhateverTheBlobStore() throws Exception {
+		ReflectionTestUtils.setField(sweeper, "blobStore", mock(BlobStore.class, invocation ->
+				invocation.getMethod().getReturnType() == Stream.class ? Stream.empty() : null));
+		Path abandoned = Files.write(staging.resolve("abandoned"), new byte[]{1, 2, 3, 4});
+		Files.setLastModifiedTime(abandoned, FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+		Path inProgress = Files.write(staging.resolve("in-progress"), new byte[]{5});
+
+		sweeper.sweep();
+
+		assertThat(abandoned).doesNotExist();
+		assertThat(inProgress).exists();
+		assertThat(sweeper.status().get("bytesReclaimed")).isEqualTo(4L);
+	}
+
+	private Product listing(User seller, String hash, ProductStatus status) throws Exception {
+		StoredBlob blob = new StoredBlob(hash, "jpg", 3, "image/jpeg");
+		entityManager.persist(blob);
+		String path = ImageStorageService.publicPath(blob);
+
+		// Stored well before the sweep's grace period
+		FileTime stored = FileTime.from(Instant.now().minus(Duration.ofDays(2)));
+		for (String key : List.of(key(hash), key(hash) + ".thumb.jpg")) {
+			Path file = root.resolve(key);
+			Files.createDirectories(file.getParent());
+			Files.write(file, new byte[]{1, 2, 3});
+			Files.setLastModifiedTime(file, stored);
+		}
+
+		Product product = new Product("Lamp " + hash.charAt(0), 10.0, "Furniture", "Resell", "Desk lamp", path, seller, "Good");
+		product.setStatus(status);
+		return entityManager.persist(product);
+	}
+
+	private static String key(String hash) {
+		return ImageStorageService.keyOf(ImageStorageService.shardedPath(hash, "jpg"));
+	}
+}
@@ -0,0 +1,54 @@
+package retouch.project.careNdShare.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PasswordHashingServiceTest {
+
+	private final CountDownLatch hashing = new CountDownLatch(1);
+	private final PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+	private PasswordHashingService service;
+
+	@BeforeEach
+	void setUp() {
+		when(passwordEncoder.encode(anyString())).thenReturn("dummy");
+		service = new PasswordHashingService();
+		ReflectionTestUtils.setField(service, "passwordEncoder", passwordEncoder);
+		ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(service, "threads", 1);
+		ReflectionTestUtils.setField(service, "queueCapacity", 4);
+		ReflectionTestUtils.setField(service, "completionThreads", 1);
+		service.init();
+	}
+
+	@AfterEach
+	void tearDown() {
+		service.shutdown();
+	}
+
+	@Test
+	void continuationsRunOnTheCompletionPoolNotTheHashingPool() throws Exception {
+		when(passwordEncoder.matches("secret", "hash")).thenAnswer(invocation -> {
+			hashing.await();
+			return true;
+		});
+
+		CompletableFuture<String> thread = service.matches("secret", "hash")
+				.thenApply(matches -> Thread.currentThread().getName());
+		hashing.countDown();
+
+		assertThat(thread.get()).startsWith("password-hash-completion-");
+	}
+}
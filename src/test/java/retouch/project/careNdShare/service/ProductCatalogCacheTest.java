@@ -0,0 +1,124 @@
+package retouch.project.careNdShare.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import retouch.project.careNdShare.dto.ProductSort;
+import retouch.project.careNdShare.dto.ProductSummaryDTO;
+import retouch.project.careNdShare.entity.Product;
+import retouch.project.careNdShare.entity.ProductStatus;
+import retouch.project.careNdShare.entity.User;
+import retouch.project.careNdShare.repository.ProductRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Writes made through another node only reach this node's snapshot through the periodic sync
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class ProductCatalogCacheTest {
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	private final List<ProductStatusChangedEvent> published = new ArrayList<>();
+
+	@Test
+	void syncPicksUpApprovalsRejectionsAndDeletesFromOtherNodes() {
+		User seller = seller();
+		Product lamp = product("Lamp", seller, ProductStatus.APPROVED);
+		Product chair = product("Chair", seller, ProductStatus.APPROVED);
+		Product vase = product("Vase", seller, ProductStatus.PENDING);
+		entityManager.flush();
+		ProductCatalogCache cache = cache();
+		cache.rebuild();
+		assertThat(names(cache)).containsExactly("Chair", "Lamp");
+
+		// Another node approves the vase, rejects the lamp and deletes the chair
+		LocalDateTime later = LocalDateTime.now().plusMinutes(1);
+		vase.setStatus(ProductStatus.APPROVED);
+		vase.setUpdatedAt(later);
+		lamp.setStatus(ProductStatus.REJECTED);
+		lamp.setUpdatedAt(later);
+		entityManager.remove(chair);
+		entityManager.flush();
+		entityManager.clear();
+
+		cache.syncFromDatabase();
+
+		assertThat(names(cache)).containsExactly("Vase");
+		assertThat(published).extracting(ProductStatusChangedEvent::getProductId)
+				.containsExactlyInAnyOrder(vase.getId(), lamp.getId(), chair.getId());
+	}
+
+	@Test
+	void syncWithoutNewWritesPublishesNothing() {
+		User seller = seller();
+		product("Lamp", seller, ProductStatus.APPROVED);
+		entityManager.flush();
+		ProductCatalogCache cache = cache();
+		cache.rebuild();
+
+		cache.syncFromDatabase();
+
+		assertThat(published).isEmpty();
+		assertThat(names(cache)).containsExactly("Lamp");
+	}
+
+	@Test
+	void changesAlreadyAppliedLocallyAreNotReplayed() {
+		User seller = seller();
+		Product lamp = product("Lamp", seller, ProductStatus.PENDING);
+		entityManager.flush();
+		ProductCatalogCache cache = cache();
+		cache.rebuild();
+
+		// Approved on this node: the local event already patched the snapshot
+		lamp.setStatus(ProductStatus.APPROVED);
+		lamp.setUpdatedAt(LocalDateTime.now().plusMinutes(1));
+		entityManager.flush();
+		cache.onProductStatusChanged(new ProductStatusChangedEvent(lamp.getId(), ProductStatus.PENDING, ProductStatus.APPROVED));
+
+		cache.syncFromDatabase();
+
+		assertThat(published).isEmpty();
+		assertThat(names(cache)).containsExactly("Lamp");
+	}
+
+	private ProductCatalogCache cache() {
+		ProductCatalogCache cache = new ProductCatalogCache();
+		ReflectionTestUtils.setField(cache, "productRepository", productRepository);
+		ReflectionTestUtils.setField(cache, "syncOverlapSeconds", 60L);
+		ApplicationEventPublisher publisher = event -> {
+			published.add((ProductStatusChangedEvent) event);
+			cache.onProductStatusChanged((ProductStatusChangedEvent) event);
+		};
+		ReflectionTestUtils.setField(cache, "eventPublisher", publisher);
+		return cache;
+	}
+
+	private static List<String> names(ProductCatalogCache cache) {
+		return cache.current().list(null, null, ProductSort.NAME_ASC).stream()
+				.map(ProductSummaryDTO::getName).collect(Collectors.toList());
+	}
+
+	private User seller() {
+		return entityManager.persist(new User("seller@example.com", "secret", "Test", "Seller",
+				new ArrayList<>(List.of("ROLE_USER"))));
+	}
+
+	private Product product(String name, User seller, ProductStatus status) {
+		Product product = new Product(name, 10.0, "Furniture", "Resell", name, "/uploads/p.jpg", seller, "Good");
+		product.setStatus(status);
+		return entityManager.persist(product);
+	}
+}
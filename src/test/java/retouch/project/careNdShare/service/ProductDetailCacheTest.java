@@ -0,0 +1,109 @@
+package retouch.project.careNdShare.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import retouch.project.careNdShare.dto.ProductDetailDTO;
+import retouch.project.careNdShare.entity.ProductStatus;
+import retouch.project.careNdShare.repository.ProductRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductDetailCacheTest {
+
+	private final ProductRepository productRepository = mock(ProductRepository.class);
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final ProductDetailDTO detail = mock(ProductDetailDTO.class);
+
+	private ProductDetailCache cache;
+
+	@BeforeEach
+	void setUp() {
+		cache = new ProductDetailCache();
+		ReflectionTestUtils.setField(cache, "productRepository", productRepository);
+		ReflectionTestUtils.setField(cache, "meterRegistry", meterRegistry);
+		ReflectionTestUtils.setField(cache, "ttlSeconds", 60L);
+		ReflectionTestUtils.setField(cache, "maxEntries", 100);
+		cache.init();
+	}
+
+	@Test
+	void concurrentMissesShareOneQuery() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		when(productRepository.findApprovedDetailById(1L)).thenAnswer(invocation -> {
+			release.await(5, TimeUnit.SECONDS);
+			return Optional.of(detail);
+		});
+
+		int callers = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(callers);
+		List<Future<Optional<ProductDetailDTO>>> results = new ArrayList<>();
+		try {
+			for (int i = 0; i < callers; i++) {
+				results.add(executor.submit(() -> cache.get(1L)));
+			}
+			// Everyone but the loader is parked on its future before the query returns
+			long deadline = System.currentTimeMillis() + 5000;
+			while (coalesced() < callers - 1 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			release.countDown();
+			for (Future<Optional<ProductDetailDTO>> result : results) {
+				assertThat(result.get(5, TimeUnit.SECONDS)).containsSame(detail);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertThat(coalesced()).isEqualTo(callers - 1);
+		verify(productRepository, times(1)).findApprovedDetailById(1L);
+
+		// And the result was cached
+		assertThat(cache.get(1L)).containsSame(detail);
+		verify(productRepository, times(1)).findApprovedDetailById(1L);
+	}
+
+	@Test
+	void aLoadOverlappingAnInvalidationIsNotCached() {
+		// The product changes while its detail is being read
+		when(productRepository.findApprovedDetailById(1L)).thenAnswer(invocation -> {
+			cache.invalidate(1L);
+			return Optional.of(detail);
+		});
+
+		assertThat(cache.get(1L)).containsSame(detail);
+		assertThat(cache.get(1L)).containsSame(detail);
+
+		verify(productRepository, times(2)).findApprovedDetailById(1L);
+	}
+
+	@Test
+	void statusChangesDropTheEntry() {
+		when(productRepository.findApprovedDetailById(1L)).thenReturn(Optional.of(detail));
+		cache.get(1L);
+
+		cache.onProductStatusChanged(new ProductStatusChangedEvent(1L, ProductStatus.APPROVED, ProductStatus.SOLD));
+		cache.get(1L);
+
+		verify(productRepository, times(2)).findApprovedDetailById(1L);
+	}
+
+	private double coalesced() {
+		return meterRegistry.counter("product.detail.cache", "result", "coalesced").count();
+	}
+}
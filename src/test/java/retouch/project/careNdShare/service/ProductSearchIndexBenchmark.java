@@ -0,0 +1,103 @@
+package retouch.project.careNdShare.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import retouch.project.careNdShare.dto.ProductSummaryDTO;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Search latency over a synthetic catalog (1M products by default). Opt-in, as it needs a few GB of heap:
+ *
+ *   mvn test -Dtest=ProductSearchIndexBenchmark -Dsearch.benchmark=true -DargLine=-Xmx3g [-Dsearch.benchmark.products=1000000]
+ *
+ * Words follow a skewed (roughly Zipfian) distribution, so common words have very long postings;
+ * half of the queries end in a 3-5 character prefix, like search-as-you-type.
+ */
+@EnabledIfSystemProperty(named = "search.benchmark", matches = "true")
+class ProductSearchIndexBenchmark {
+
+	private static final int VOCABULARY = 20_000;
+	private static final int WARMUP_QUERIES = 2_000;
+	private static final int MEASURED_QUERIES = 5_000;
+	private static final double P99_TARGET_MS = 20.0;
+
+	@Test
+	void p99SearchLatency() {
+		int productCount = Integer.getInteger("search.benchmark.products", 1_000_000);
+		Random random = new Random(42);
+		String[] words = vocabulary(random);
+
+		List<ProductSummaryDTO> products = new ArrayList<>(productCount);
+		for (long id = 1; id <= productCount; id++) {
+			products.add(ProductSearchIndexTest.product(id, phrase(random, words, 3), phrase(random, words, 12)));
+		}
+		long buildStarted = System.nanoTime();
+		ProductSearchIndex index = ProductSearchIndexTest.indexOf(products);
+		System.out.printf("Indexed %d products in %d ms%n", productCount, (System.nanoTime() - buildStarted) / 1_000_000);
+
+		for (int i = 0; i < WARMUP_QUERIES; i++) {
+			index.search(query(random, words), null, null, null, null, null, 20);
+		}
+		long[] nanos = new long[MEASURED_QUERIES];
+		for (int i = 0; i < MEASURED_QUERIES; i++) {
+			String query = query(random, words);
+			long started = System.nanoTime();
+			index.search(query, null, null, null, null, null, 20);
+			nanos[i] = System.nanoTime() - started;
+		}
+
+		Arrays.sort(nanos);
+		double p50 = nanos[MEASURED_QUERIES / 2] / 1e6;
+		double p99 = nanos[(int) (MEASURED_QUERIES * 0.99)] / 1e6;
+		double max = nanos[MEASURED_QUERIES - 1] / 1e6;
+		System.out.printf("Search over %d products: p50 %.2f ms, p99 %.2f ms, max %.2f ms%n", productCount, p50, p99, max);
+
+		assertThat(p99).isLessThan(P99_TARGET_MS);
+	}
+
+	private static String[] vocabulary(Random random) {
+		String[] syllables = {"ka", "lo", "mi", "ne", "ru", "sa", "ti", "vo", "ba", "de", "fi", "go", "hu", "ja", "pe", "zu"};
+		String[] words = new String[VOCABULARY];
+		for (int i = 0; i < VOCABULARY; i++) {
+			StringBuilder word = new StringBuilder();
+			int length = 2 + random.nextInt(3);
+			for (int s = 0; s < length; s++) {
+				word.append(syllables[random.nextInt(syllables.length)]);
+			}
+			words[i] = word.append(i % 97).toString();
+		}
+		return words;
+	}
+
+	// Cubing a uniform value skews picks towards the start of the vocabulary
+	private static String word(Random random, String[] words) {
+		double u = random.nextDouble();
+		return words[(int) (u * u * u * words.length)];
+	}
+
+	private static String phrase(Random random, String[] words, int length) {
+		StringBuilder phrase = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			phrase.append(i == 0 ? "" : " ").append(word(random, words));
+		}
+		return phrase.toString();
+	}
+
+	private static String query(Random random, String[] words) {
+		String query = phrase(random, words, 1 + random.nextInt(2));
+		if (random.nextBoolean()) {
+			// Search-as-you-type: cut the last word down to a prefix
+			int lastSpace = query.lastIndexOf(' ');
+			String last = query.substring(lastSpace + 1);
+			int prefixLength = Math.min(last.length(), 3 + random.nextInt(3));
+			query = query.substring(0, lastSpace + 1) + last.substring(0, prefixLength);
+		}
+		return query;
+	}
+}
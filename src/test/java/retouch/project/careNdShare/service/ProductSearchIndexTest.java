@@ -0,0 +1,113 @@
+package retouch.project.careNdShare.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import retouch.project.careNdShare.dto.ProductSearchResponse;
+import retouch.project.careNdShare.dto.ProductSummaryDTO;
+import retouch.project.careNdShare.entity.ProductStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductSearchIndexTest {
+
+	@Test
+	void nameMatchesOutrankDescriptionMatches() {
+		ProductSearchIndex index = indexOf(List.of(
+				product(1L, "Wooden chair", "Sturdy oak lamp stand included"),
+				product(2L, "Desk lamp", "Adjustable arm"),
+				product(3L, "Bookshelf", "Five shelves")));
+
+		ProductSearchResponse response = index.search("lamp", null, null, null, null, null, 10);
+
+		assertThat(ids(response)).containsExactly(2L, 1L);
+		assertThat(response.getTotal()).isEqualTo(2);
+	}
+
+	@Test
+	void rarerTermsWeighMoreThanCommonOnes() {
+		List<ProductSummaryDTO> products = new ArrayList<>();
+		for (long id = 1; id <= 20; id++) {
+			products.add(product(id, "Table " + id, "Plain table"));
+		}
+		products.add(product(21L, "Table walnut", "Plain table"));
+		ProductSearchIndex index = indexOf(products);
+
+		// Both words must match, and the rare one decides the ranking
+		ProductSearchResponse response = index.search("table walnut", null, null, null, null, null, 10);
+
+		assertThat(ids(response)).containsExactly(21L);
+	}
+
+	@Test
+	void lastWordMatchesAsPrefixButEarlierWordsDoNot() {
+		ProductSearchIndex index = indexOf(List.of(
+				product(1L, "Lampshade", "Linen"),
+				product(2L, "Red lamp", "Linen")));
+
+		assertThat(ids(index.search("lam", null, null, null, null, null, 10))).containsExactlyInAnyOrder(1L, 2L);
+		assertThat(ids(index.search("lam linen", null, null, null, null, null, 10))).isEmpty();
+		// An exact match scores above a prefix expansion
+		assertThat(ids(index.search("lamp", null, null, null, null, null, 10))).containsExactly(2L, 1L);
+	}
+
+	@Test
+	void prefixExpansionStopsAtSixtyFourTerms() {
+		List<ProductSummaryDTO> products = new ArrayList<>();
+		for (long id = 0; id < 100; id++) {
+			products.add(product(id, String.format("gadget%03d", id), "Spare part"));
+		}
+		ProductSearchIndex index = indexOf(products);
+
+		ProductSearchResponse response = index.search("gadget", null, null, null, null, null, 100);
+
+		// Terms are expanded in sorted order, so the first 64 are the ones that match
+		assertThat(response.getTotal()).isEqualTo(64);
+		assertThat(ids(response)).allMatch(id -> id < 64);
+	}
+
+	@Test
+	void statusChangesPatchTheIndex() {
+		ProductSummaryDTO lamp = product(1L, "Desk lamp", "Brass");
+		ProductSummaryDTO chair = product(2L, "Lamp chair", "Oak");
+		ProductSearchIndex index = indexOf(List.of(lamp, chair));
+		ProductCatalogCache catalog = (ProductCatalogCache) ReflectionTestUtils.getField(index, "productCatalogCache");
+
+		// The chair leaves the catalog, and the lamp is renamed
+		ProductSummaryDTO renamed = product(1L, "Floor lamp", "Brass");
+		when(catalog.current()).thenReturn(CatalogSnapshot.build(2, List.of(renamed)));
+		index.onProductStatusChanged(new ProductStatusChangedEvent(2L, ProductStatus.APPROVED, ProductStatus.SOLD));
+		index.onProductStatusChanged(new ProductStatusChangedEvent(1L, ProductStatus.APPROVED, ProductStatus.APPROVED));
+
+		assertThat(ids(index.search("lamp", null, null, null, null, null, 10))).containsExactly(1L);
+		assertThat(ids(index.search("floor", null, null, null, null, null, 10))).containsExactly(1L);
+		assertThat(ids(index.search("desk", null, null, null, null, null, 10))).isEmpty();
+		assertThat(ids(index.search("oak", null, null, null, null, null, 10))).isEmpty();
+		assertThat(index.size()).isEqualTo(1);
+	}
+
+	static ProductSearchIndex indexOf(List<ProductSummaryDTO> products) {
+		ProductCatalogCache catalog = mock(ProductCatalogCache.class);
+		when(catalog.current()).thenReturn(CatalogSnapshot.build(1, products));
+		ProductSearchIndex index = new ProductSearchIndex();
+		ReflectionTestUtils.setField(index, "productCatalogCache", catalog);
+		index.rebuild();
+		return index;
+	}
+
+	static ProductSummaryDTO product(Long id, String name, String description) {
+		LocalDateTime now = LocalDateTime.now();
+		return new ProductSummaryDTO(id, name, 10.0, "Furniture", "Resell", description, "/uploads/p.jpg",
+				null, null, "Good", ProductStatus.APPROVED, now, now, 1L, "Test", "Seller");
+	}
+
+	private static List<Long> ids(ProductSearchResponse response) {
+		return response.getItems().stream().map(ProductSummaryDTO::getId).collect(Collectors.toList());
+	}
+}
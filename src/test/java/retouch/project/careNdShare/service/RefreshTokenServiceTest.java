@@ -0,0 +1,130 @@
+package retouch.project.careNdShare.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import retouch.project.careNdShare.entity.RefreshToken;
+import retouch.project.careNdShare.entity.User;
+import retouch.project.careNdShare.repository.RefreshTokenRepository;
+import retouch.project.careNdShare.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Rotation, the two-tabs race and reuse detection; not transactional, so concurrent requests see each other's commits
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RefreshTokenServiceTest {
+
+	@Autowired
+	private RefreshTokenRepository refreshTokenRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	private RefreshTokenService service;
+	private User user;
+
+	@BeforeEach
+	void setUp() {
+		service = new RefreshTokenService();
+		ReflectionTestUtils.setField(service, "refreshTokenRepository", refreshTokenRepository);
+		ReflectionTestUtils.setField(service, "ttlDays", 14L);
+		ReflectionTestUtils.setField(service, "reuseGraceSeconds", 10L);
+		user = userRepository.save(new User("tabs@example.com", "secret", "Test", "User",
+				new ArrayList<>(List.of("ROLE_USER"))));
+	}
+
+	@AfterEach
+	void cleanUp() {
+		refreshTokenRepository.deleteAll();
+		userRepository.deleteAll();
+	}
+
+	@Test
+	void rotationIssuesASuccessorInTheSameFamily() {
+		String first = service.issue(user);
+
+		RefreshTokenService.Rotation rotation = service.rotate(first);
+
+		assertThat(rotation.getUser().getId()).isEqualTo(user.getId());
+		assertThat(rotation.getRefreshToken()).isNotNull().isNotEqualTo(first);
+		List<RefreshToken> tokens = refreshTokenRepository.findAll();
+		assertThat(tokens).hasSize(2);
+		assertThat(tokens.get(1).getFamilyId()).isEqualTo(tokens.get(0).getFamilyId());
+		// The successor rotates in turn
+		assertThat(service.rotate(rotation.getRefreshToken()).getRefreshToken()).isNotNull();
+	}
+
+	@Test
+	void concurrentRefreshesRotateOnceAndTheLoserIsToldToRetry() throws Exception {
+		String first = service.issue(user);
+		CountDownLatch start = new CountDownLatch(1);
+		Callable<Object> refresh = () -> {
+			start.await();
+			try {
+				return service.rotate(first);
+			} catch (RuntimeException e) {
+				return e;
+			}
+		};
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		List<Object> outcomes = new ArrayList<>();
+		try {
+			Future<Object> a = executor.submit(refresh);
+			Future<Object> b = executor.submit(refresh);
+			start.countDown();
+			outcomes.add(a.get());
+			outcomes.add(b.get());
+		} finally {
+			executor.shutdown();
+		}
+
+		assertThat(outcomes).filteredOn(RefreshTokenService.Rotation.class::isInstance).hasSize(1);
+		assertThat(outcomes).filteredOn(RefreshTokenRaceException.class::isInstance).hasSize(1);
+		// The loser got no token of its own, and the family survives: the winner's successor still works
+		RefreshTokenService.Rotation winner = (RefreshTokenService.Rotation) outcomes.stream()
+				.filter(RefreshTokenService.Rotation.class::isInstance).findFirst().orElseThrow();
+		assertThat(refreshTokenRepository.count()).isEqualTo(2);
+		assertThat(service.rotate(winner.getRefreshToken()).getRefreshToken()).isNotNull();
+	}
+
+	@Test
+	void aReplayWithinTheGracePeriodGetsNoTokens() {
+		String first = service.issue(user);
+		service.rotate(first);
+
+		assertThatThrownBy(() -> service.rotate(first)).isInstanceOf(RefreshTokenRaceException.class);
+		assertThat(refreshTokenRepository.count()).isEqualTo(2);
+	}
+
+	@Test
+	void reuseAfterTheGracePeriodRevokesTheWholeFamily() {
+		String first = service.issue(user);
+		String second = service.rotate(first).getRefreshToken();
+		RefreshToken used = refreshTokenRepository.findAll().stream()
+				.filter(token -> token.getUsedAt() != null).findFirst().orElseThrow();
+		used.setUsedAt(LocalDateTime.now().minusMinutes(1));
+		refreshTokenRepository.save(used);
+
+		assertThatThrownBy(() -> service.rotate(first)).hasMessageContaining("already been used");
+
+		assertThat(refreshTokenRepository.findAll()).allMatch(RefreshToken::isRevoked);
+		assertThatThrownBy(() -> service.rotate(second)).hasMessageContaining("expired");
+	}
+}
@@ -0,0 +1,151 @@
+package retouch.project.careNdShare.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import retouch.project.careNdShare.entity.Product;
+import retouch.project.careNdShare.entity.StoredBlob;
+import retouch.project.careNdShare.entity.User;
+import retouch.project.careNdShare.repository.ExchangeRequestRepository;
+import retouch.project.careNdShare.repository.ProductRepository;
+import retouch.project.careNdShare.repository.StoredBlobRepository;
+import retouch.project.careNdShare.storage.FileSystemBlobStore;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+// Legacy and flat uploads end up in the sharded layout, with the row rewritten before the old file goes
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class StorageMigrationServiceTest {
+
+	@TempDir
+	Path root;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private ExchangeRequestRepository exchangeRequestRepository;
+
+	@Autowired
+	private StoredBlobRepository storedBlobRepository;
+
+	private StorageMigrationService service;
+	private ImageRenditionService imageRenditionService;
+	private User seller;
+
+	// Old uploads are read from the working directory's uploads/, so these are removed after each test
+	private final List<Path> legacyFiles = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		ImageStorageService imageStorageService = new ImageStorageService();
+		ReflectionTestUtils.setField(imageStorageService, "storedBlobRepository", storedBlobRepository);
+		ReflectionTestUtils.setField(imageStorageService, "blobStore", new FileSystemBlobStore(root.toString()));
+		imageRenditionService = mock(ImageRenditionService.class);
+
+		service = new StorageMigrationService();
+		ReflectionTestUtils.setField(service, "productRepository", productRepository);
+		ReflectionTestUtils.setField(service, "exchangeRequestRepository", exchangeRequestRepository);
+		ReflectionTestUtils.setField(service, "imageStorageService", imageStorageService);
+		ReflectionTestUtils.setField(service, "imageRenditionService", imageRenditionService);
+		ReflectionTestUtils.setField(service, "productCatalogCache", mock(ProductCatalogCache.class));
+		ReflectionTestUtils.setField(service, "productDetailCache", mock(ProductDetailCache.class));
+
+		seller = entityManager.persist(new User("migration@example.com", "secret", "Seller", "Test",
+				new ArrayList<>(List.of("ROLE_USER"))));
+	}
+
+	@AfterEach
+	void deleteLegacyFiles() throws Exception {
+		for (Path file : legacyFiles) {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	void legacyUploadBecomesAShardedBlob() throws Exception {
+		byte[] bytes = UUID.randomUUID().toString().getBytes();
+		String oldPath = "/uploads/" + UUID.randomUUID() + "_legacy.jpg";
+		Path oldFile = legacyFile(oldPath, bytes);
+		Product product = listing(oldPath);
+
+		migrate();
+
+		String newPath = productRepository.findById(product.getId()).orElseThrow().getImagePath();
+		assertThat(ImageStorageService.isSharded(newPath)).isTrue();
+		assertThat(Files.readAllBytes(root.resolve(ImageStorageService.keyOf(newPath)))).isEqualTo(bytes);
+		assertThat(storedBlobRepository.findById(ImageStorageService.hashOf(newPath)).orElseThrow().getRefCount())
+				.isEqualTo(1);
+		assertThat(oldFile).doesNotExist();
+		// It had no renditions to carry over, so they are generated for the new path
+		verify(imageRenditionService).scheduleProductRenditions(product.getId(), newPath);
+		assertThat(service.status().get("migrated")).isEqualTo(1L);
+	}
+
+	@Test
+	void flatBlobMovesWithoutTakingAnotherReference() throws Exception {
+		byte[] bytes = UUID.randomUUID().toString().getBytes();
+		String hash = UUID.randomUUID().toString().replace("-", "").repeat(2);
+		entityManager.persist(new StoredBlob(hash, "jpg", bytes.length, "image/jpeg"));
+		String oldPath = "/uploads/" + hash + ".jpg";
+		Path oldFile = legacyFile(oldPath, bytes);
+		Product product = listing(oldPath);
+
+		migrate();
+
+		String newPath = productRepository.findById(product.getId()).orElseThrow().getImagePath();
+		assertThat(newPath).isEqualTo(ImageStorageService.shardedPath(hash, "jpg"));
+		assertThat(Files.readAllBytes(root.resolve(ImageStorageService.keyOf(newPath)))).isEqualTo(bytes);
+		assertThat(storedBlobRepository.findById(hash).orElseThrow().getRefCount()).isEqualTo(1);
+		assertThat(oldFile).doesNotExist();
+	}
+
+	@Test
+	void missingFilesAreSkippedAndTheRowKept() throws Exception {
+		String oldPath = "/uploads/" + UUID.randomUUID() + "_gone.jpg";
+		Product product = listing(oldPath);
+
+		migrate();
+
+		assertThat(productRepository.findById(product.getId()).orElseThrow().getImagePath()).isEqualTo(oldPath);
+		assertThat(service.status().get("skipped")).isEqualTo(1L);
+		assertThat(storedBlobRepository.count()).isZero();
+	}
+
+	private void migrate() {
+		ReflectionTestUtils.invokeMethod(service, "migrateProducts", StorageMigrationService.DEFAULT_BATCH_SIZE);
+		// The row and the reference counts are changed by bulk updates, which bypass the persistence context
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	private Product listing(String imagePath) {
+		Product product = new Product("Chair", 10.0, "Furniture", "Resell", "Wooden chair", imagePath, seller, "Good");
+		product = entityManager.persist(product);
+		entityManager.flush();
+		return product;
+	}
+
+	private Path legacyFile(String publicPath, byte[] bytes) throws Exception {
+		Path file = ImageStorageService.toFile(publicPath);
+		legacyFiles.add(file);
+		Files.createDirectories(file.getParent());
+		return Files.write(file, bytes);
+	}
+}
@@ -0,0 +1,161 @@
+package retouch.project.careNdShare.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UploadSessionServiceTest {
+
+	private static final Long OWNER = 1L;
+
+	@TempDir
+	Path staging;
+
+	private final ImageStorageService imageStorageService = mock(ImageStorageService.class);
+	private final AtomicReference<byte[]> stored = new AtomicReference<>();
+	private final AtomicReference<String> storedHash = new AtomicReference<>();
+	private UploadSessionService service;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		service = new UploadSessionService();
+		ReflectionTestUtils.setField(service, "imageStorageService", imageStorageService);
+		ReflectionTestUtils.setField(service, "maxBytes", 1024L * 1024);
+		ReflectionTestUtils.setField(service, "sessionTtlMinutes", 60L);
+		ReflectionTestUtils.setField(service, "maxSessionsPerUser", 2);
+
+		when(imageStorageService.newTempFile()).thenAnswer(invocation -> staging.resolve(UUID.randomUUID().toString()));
+		// Record what would be stored: the staged bytes and the hash computed while they streamed in
+		when(imageStorageService.storeImage(any(), any(), any())).thenAnswer(invocation -> {
+			stored.set(Files.readAllBytes(invocation.getArgument(0)));
+			storedHash.set(HexFormat.of().formatHex(invocation.<MessageDigest>getArgument(2).digest()));
+			return "/uploads/ab/cd/" + "ab".repeat(32) + ".jpg";
+		});
+	}
+
+	@Test
+	void aChunkFromTheWrongOffsetIsRefused() throws Exception {
+		byte[] image = jpeg(100);
+		UploadSessionService.UploadSession session = service.start(OWNER, 100L);
+		service.append(session.getId(), OWNER, 0L, 100L, new ByteArrayInputStream(image, 0, 40));
+
+		assertThatThrownBy(() -> service.append(session.getId(), OWNER, 60L, 100L,
+				new ByteArrayInputStream(image, 60, 40)))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("offset 40");
+
+		// Nothing was written by the refused chunk, and the session carries on from where it was
+		assertThat(session.getOffset()).isEqualTo(40);
+		service.append(session.getId(), OWNER, 40L, 100L, new ByteArrayInputStream(image, 40, 60));
+		assertThat(session.isComplete()).isTrue();
+		assertThat(stored.get()).isEqualTo(image);
+	}
+
+	@Test
+	void aDroppedChunkResumesFromTheBytesThatArrived() throws Exception {
+		byte[] image = jpeg(5000);
+		UploadSessionService.UploadSession session = service.start(OWNER, null);
+
+		// The connection drops after 3000 bytes of the first chunk
+		assertThatThrownBy(() -> service.append(session.getId(), OWNER, 0L, 5000L, droppingAfter(image, 3000)))
+				.isInstanceOf(IOException.class);
+		assertThat(service.status(session.getId(), OWNER).getOffset()).isEqualTo(3000);
+		assertThat(session.isComplete()).isFalse();
+
+		service.append(session.getId(), OWNER, 3000L, 5000L, new ByteArrayInputStream(image, 3000, 2000));
+
+		assertThat(session.isComplete()).isTrue();
+		assertThat(stored.get()).isEqualTo(image);
+		assertThat(storedHash.get()).isEqualTo(HexFormat.of().formatHex(ImageStorageService.sha256().digest(image)));
+		assertThat(service.claim(session.getId(), OWNER)).startsWith("/uploads/");
+	}
+
+	@Test
+	void aNonImageIsRejectedBeforeAnythingIsWritten() throws Exception {
+		UploadSessionService.UploadSession session = service.start(OWNER, null);
+
+		assertThatThrownBy(() -> service.append(session.getId(), OWNER, null, null,
+				new ByteArrayInputStream("<html><script>alert(1)</script></html>".getBytes())))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("Unsupported image type");
+
+		try (var files = Files.list(staging)) {
+			assertThat(files).isEmpty();
+		}
+		verify(imageStorageService, never()).storeImage(any(), any(), any());
+		// The session is gone, and so is its slot
+		assertThatThrownBy(() -> service.status(session.getId(), OWNER)).hasMessageContaining("not found");
+		service.start(OWNER, null);
+		service.start(OWNER, null);
+	}
+
+	@Test
+	void eachUserMayOnlyHoldAFewOpenSessions() throws Exception {
+		UploadSessionService.UploadSession first = service.start(OWNER, null);
+		service.start(OWNER, null);
+
+		assertThatThrownBy(() -> service.start(OWNER, null)).isInstanceOf(TooManyUploadsException.class);
+		// Other users are unaffected
+		service.start(2L, null);
+
+		// Finishing or cancelling one frees its slot
+		service.abort(first.getId(), OWNER);
+		UploadSessionService.UploadSession third = service.start(OWNER, null);
+		service.append(third.getId(), OWNER, null, null, new ByteArrayInputStream(jpeg(10)));
+		service.claim(third.getId(), OWNER);
+		service.start(OWNER, null);
+		assertThatThrownBy(() -> service.start(OWNER, null)).isInstanceOf(TooManyUploadsException.class);
+	}
+
+	private static byte[] jpeg(int length) {
+		byte[] bytes = new byte[length];
+		Arrays.fill(bytes, (byte) 7);
+		bytes[0] = (byte) 0xFF;
+		bytes[1] = (byte) 0xD8;
+		bytes[2] = (byte) 0xFF;
+		return bytes;
+	}
+
+	private static InputStream droppingAfter(byte[] bytes, int limit) {
+		return new InputStream() {
+			private int position;
+
+			@Override
+			public int read() throws IOException {
+				byte[] one = new byte[1];
+				return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+			}
+
+			@Override
+			public int read(byte[] buffer, int offset, int length) throws IOException {
+				if (position >= limit) {
+					throw new IOException("Connection reset");
+				}
+				int count = Math.min(length, limit - position);
+				System.arraycopy(bytes, position, buffer, offset, count);
+				position += count;
+				return count;
+			}
+		};
+	}
+}
@@ -0,0 +1,129 @@
+package retouch.project.careNdShare.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import retouch.project.careNdShare.entity.ExchangeRequest;
+import retouch.project.careNdShare.entity.Product;
+import retouch.project.careNdShare.entity.ProductStatus;
+import retouch.project.careNdShare.entity.PurchaseRequest;
+import retouch.project.careNdShare.entity.StoredBlob;
+import retouch.project.careNdShare.entity.User;
+import retouch.project.careNdShare.repository.ExchangeRequestRepository;
+import retouch.project.careNdShare.repository.ProductRepository;
+import retouch.project.careNdShare.repository.PurchaseRepository;
+import retouch.project.careNdShare.repository.StoredBlobRepository;
+import retouch.project.careNdShare.repository.UserRepository;
+import retouch.project.careNdShare.security.UserDetailsServiceImpl;
+import retouch.project.careNdShare.storage.FileSystemBlobStore;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+// Deleting a user takes their listings, exchange requests and purchases with it and releases the images
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class UserServiceTest {
+
+	@TempDir
+	Path root;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private ExchangeRequestRepository exchangeRequestRepository;
+
+	@Autowired
+	private PurchaseRepository purchaseRepository;
+
+	@Autowired
+	private StoredBlobRepository storedBlobRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void deletingAUserReleasesTheImagesOfEverythingDeletedWithThem() throws Exception {
+		User seller = user("seller@example.com");
+		User buyer = user("buyer@example.com");
+		Product listing = new Product("Lamp", 10.0, "Furniture", "Exchange", "Desk lamp", image("aa"), seller, "Good");
+		listing.setStatus(ProductStatus.APPROVED);
+		entityManager.persist(listing);
+		Product buyersListing = new Product("Chair", 20.0, "Furniture", "Resell", "Oak chair", image("bb"), buyer, "Good");
+		entityManager.persist(buyersListing);
+		entityManager.persist(new ExchangeRequest(listing, "Vase", "Decor", "Blue vase", image("cc"), null, buyer, "PENDING"));
+		entityManager.persist(new PurchaseRequest(listing, buyer, "Buyer Test", "buyer@example.com", "555-0100",
+				"1 Main St", "CARD", 10.0));
+		entityManager.flush();
+		entityManager.clear();
+
+		userService().deleteUser(seller.getId());
+		entityManager.flush();
+		entityManager.clear();
+
+		assertThat(userRepository.existsById(seller.getId())).isFalse();
+		assertThat(productRepository.findByUserId(seller.getId())).isEmpty();
+		assertThat(exchangeRequestRepository.count()).isZero();
+		assertThat(purchaseRepository.count()).isZero();
+		for (String hash : List.of("aa", "cc")) {
+			assertThat(storedBlobRepository.existsById(hash.repeat(32))).isFalse();
+			assertThat(root.resolve(key(hash))).doesNotExist();
+		}
+
+		// The other user's listing and its image stay
+		assertThat(userRepository.existsById(buyer.getId())).isTrue();
+		assertThat(productRepository.existsById(buyersListing.getId())).isTrue();
+		assertThat(root.resolve(key("bb"))).exists();
+	}
+
+	private UserService userService() {
+		ImageStorageService imageStorageService = new ImageStorageService();
+		ReflectionTestUtils.setField(imageStorageService, "storedBlobRepository", storedBlobRepository);
+		ReflectionTestUtils.setField(imageStorageService, "blobStore", new FileSystemBlobStore(root.toString()));
+
+		UserService userService = new UserService();
+		ReflectionTestUtils.setField(userService, "userRepository", userRepository);
+		ReflectionTestUtils.setField(userService, "productRepository", productRepository);
+		ReflectionTestUtils.setField(userService, "exchangeRequestRepository", exchangeRequestRepository);
+		ReflectionTestUtils.setField(userService, "purchaseRepository", purchaseRepository);
+		ReflectionTestUtils.setField(userService, "imageStorageService", imageStorageService);
+		ReflectionTestUtils.setField(userService, "transactionManager", transactionManager);
+		ReflectionTestUtils.setField(userService, "eventPublisher", mock(ApplicationEventPublisher.class));
+		ReflectionTestUtils.setField(userService, "refreshTokenService", mock(RefreshTokenService.class));
+		ReflectionTestUtils.setField(userService, "userDetailsService", mock(UserDetailsServiceImpl.class));
+		return userService;
+	}
+
+	private User user(String email) {
+		return entityManager.persist(new User(email, "secret", "Test", "User", new ArrayList<>(List.of("ROLE_USER"))));
+	}
+
+	// A stored blob with one reference, and its file
+	private String image(String hashPrefix) throws Exception {
+		StoredBlob blob = entityManager.persist(new StoredBlob(hashPrefix.repeat(32), "jpg", 1, "image/jpeg"));
+		Path file = root.resolve(key(hashPrefix));
+		Files.createDirectories(file.getParent());
+		Files.write(file, new byte[]{1});
+		return ImageStorageService.publicPath(blob);
+	}
+
+	private static String key(String hashPrefix) {
+		return ImageStorageService.keyOf(ImageStorageService.shardedPath(hashPrefix.repeat(32), "jpg"));
+	}
+}
@@ -0,0 +1,162 @@
+package retouch.project.careNdShare.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Behaviour every {@link BlobStore} backend must share; one subclass per backend.
+ */
+abstract class BlobStoreContractTest {
+
+	@TempDir
+	Path temp;
+
+	protected BlobStore store;
+
+	protected abstract BlobStore createStore() throws Exception;
+
+	// Whether the backend hands out URLs clients fetch directly (otherwise the app serves the bytes)
+	protected abstract boolean servesDownloadUrls();
+
+	@BeforeEach
+	void setUpStore() throws Exception {
+		store = createStore();
+	}
+
+	@AfterEach
+	void deleteEverything() throws Exception {
+		List<String> keys;
+		try (Stream<BlobInfo> blobs = store.list("", true)) {
+			keys = blobs.map(BlobInfo::getKey).collect(Collectors.toList());
+		}
+		for (String key : keys) {
+			store.delete(key);
+		}
+		if (store instanceof AutoCloseable closeable) {
+			closeable.close();
+		}
+	}
+
+	@Test
+	void putCopiesTheSourceAndReplacesExistingObjects() throws IOException {
+		Path source = file("first");
+		store.put("ab/cd/blob.jpg", source, "image/jpeg");
+
+		assertThat(source).exists();
+		assertThat(read("ab/cd/blob.jpg")).isEqualTo("first");
+
+		store.put("ab/cd/blob.jpg", file("second"), "image/jpeg");
+		assertThat(read("ab/cd/blob.jpg")).isEqualTo("second");
+	}
+
+	@Test
+	void moveStoresTheSourceAndRemovesIt() throws IOException {
+		Path source = file("moved");
+		store.move("ab/cd/blob.jpg", source, "image/jpeg");
+
+		assertThat(source).doesNotExist();
+		assertThat(read("ab/cd/blob.jpg")).isEqualTo("moved");
+	}
+
+	@Test
+	void existsReflectsPutAndDelete() throws IOException {
+		assertThat(store.exists("ab/cd/blob.jpg")).isFalse();
+
+		store.put("ab/cd/blob.jpg", file("bytes"), "image/jpeg");
+		assertThat(store.exists("ab/cd/blob.jpg")).isTrue();
+
+		store.delete("ab/cd/blob.jpg");
+		assertThat(store.exists("ab/cd/blob.jpg")).isFalse();
+	}
+
+	@Test
+	void openingAMissingKeyThrowsNoSuchFile() {
+		assertThatThrownBy(() -> store.open("ab/cd/missing.jpg").close()).isInstanceOf(NoSuchFileException.class);
+	}
+
+	@Test
+	void deletingAMissingKeyIsANoOp() throws IOException {
+		store.delete("ab/cd/missing.jpg");
+
+		assertThat(store.exists("ab/cd/missing.jpg")).isFalse();
+	}
+
+	@Test
+	void renameMovesTheObjectToTheNewKey() throws IOException {
+		store.put("ab/cd/blob.jpg", file("renamed"), "image/jpeg");
+
+		store.rename("ab/cd/blob.jpg", ".quarantine/ab/cd/blob.jpg");
+
+		assertThat(store.exists("ab/cd/blob.jpg")).isFalse();
+		assertThat(read(".quarantine/ab/cd/blob.jpg")).isEqualTo("renamed");
+	}
+
+	@Test
+	void listIsFlatUnlessRecursive() throws IOException {
+		store.put("ab/top.jpg", file("12345"), "image/jpeg");
+		store.put("ab/cd/nested.jpg", file("123"), "image/jpeg");
+		store.put("ef/other.jpg", file("1"), "image/jpeg");
+
+		assertThat(keys("ab/", false)).containsExactly("ab/top.jpg");
+		assertThat(keys("ab/", true)).containsExactlyInAnyOrder("ab/top.jpg", "ab/cd/nested.jpg");
+		assertThat(keys("", true)).containsExactlyInAnyOrder("ab/top.jpg", "ab/cd/nested.jpg", "ef/other.jpg");
+		assertThat(keys("missing/", true)).isEmpty();
+
+		try (Stream<BlobInfo> blobs = store.list("ab/", false)) {
+			BlobInfo top = blobs.findFirst().orElseThrow();
+			assertThat(top.getSize()).isEqualTo(5);
+			assertThat(top.getLastModified()).isNotNull();
+		}
+	}
+
+	@Test
+	void downloadUrlServesTheObject() throws Exception {
+		store.put("ab/cd/blob.jpg", file("presigned"), "image/jpeg");
+
+		Optional<URI> url = store.downloadUrl("ab/cd/blob.jpg");
+
+		assertThat(url.isPresent()).isEqualTo(servesDownloadUrls());
+		if (url.isPresent()) {
+			HttpResponse<String> response = HttpClient.newHttpClient()
+					.send(HttpRequest.newBuilder(url.get()).GET().build(), HttpResponse.BodyHandlers.ofString());
+			assertThat(response.statusCode()).isEqualTo(200);
+			assertThat(response.body()).isEqualTo("presigned");
+		}
+	}
+
+	protected Path file(String content) throws IOException {
+		return Files.writeString(temp.resolve(UUID.randomUUID().toString()), content);
+	}
+
+	protected String read(String key) throws IOException {
+		try (InputStream input = store.open(key)) {
+			return new String(input.readAllBytes());
+		}
+	}
+
+	private List<String> keys(String prefix, boolean recursive) throws IOException {
+		try (Stream<BlobInfo> blobs = store.list(prefix, recursive)) {
+			return blobs.map(BlobInfo::getKey).collect(Collectors.toList());
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package retouch.project.careNdShare.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FileSystemBlobStoreTest extends BlobStoreContractTest {
+
+	@TempDir
+	Path root;
+
+	@Override
+	protected BlobStore createStore() {
+		return new FileSystemBlobStore(root.toString());
+	}
+
+	@Override
+	protected boolean servesDownloadUrls() {
+		return false;
+	}
+
+	@Test
+	void objectsAreFilesUnderTheRoot() throws Exception {
+		store.put("ab/cd/blob.jpg", file("on disk"), "image/jpeg");
+
+		assertThat(store.localFile("ab/cd/blob.jpg")).contains(root.resolve("ab/cd/blob.jpg"));
+		assertThat(root.resolve("ab/cd/blob.jpg")).hasContent("on disk");
+	}
+
+	@Test
+	void keysCannotEscapeTheRoot() {
+		assertThatThrownBy(() -> store.exists("../outside.jpg")).isInstanceOf(IllegalArgumentException.class);
+	}
+}
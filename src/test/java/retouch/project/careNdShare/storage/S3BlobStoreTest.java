@@ -0,0 +1,54 @@
+package retouch.project.careNdShare.storage;
+
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import retouch.project.careNdShare.config.BlobStoreConfig;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.BucketAlreadyOwnedByYouException;
+
+import java.net.URI;
+import java.util.UUID;
+
+/**
+ * The contract against a real S3-compatible server. Opt-in, e.g. with a local MinIO:
+ *
+ *   docker run -p 9000:9000 minio/minio server /data
+ *   mvn test -Dtest=S3BlobStoreTest -Dstorage.s3.endpoint=http://localhost:9000
+ *
+ * Credentials default to MinIO's (minioadmin/minioadmin), override with storage.s3.access-key and
+ * storage.s3.secret-key. Each test writes under its own key prefix, so a shared bucket is fine.
+ */
+@EnabledIfSystemProperty(named = "storage.s3.endpoint", matches = ".+")
+class S3BlobStoreTest extends BlobStoreContractTest {
+
+	private static final String REGION = "us-east-1";
+
+	@Override
+	protected BlobStore createStore() {
+		String endpoint = System.getProperty("storage.s3.endpoint");
+		String bucket = System.getProperty("storage.s3.bucket", "careshare-test");
+		String accessKey = System.getProperty("storage.s3.access-key", "minioadmin");
+		String secretKey = System.getProperty("storage.s3.secret-key", "minioadmin");
+
+		try (S3Client s3 = S3Client.builder()
+				.region(Region.of(REGION))
+				.endpointOverride(URI.create(endpoint))
+				.forcePathStyle(true)
+				.credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey)))
+				.build()) {
+			s3.createBucket(b -> b.bucket(bucket));
+		} catch (BucketAlreadyOwnedByYouException e) {
+			// created by an earlier run
+		}
+
+		return new BlobStoreConfig().s3BlobStore(bucket, REGION, endpoint, true, accessKey, secretKey,
+				"contract-" + UUID.randomUUID() + "/", 5);
+	}
+
+	@Override
+	protected boolean servesDownloadUrls() {
+		return true;
+	}
+}